@@ -0,0 +1,58 @@
+package info.kgeorgiy.ja.shchetinin.crawler.bench;
+
+import info.kgeorgiy.ja.shchetinin.crawler.WebCrawler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crawl of a synthetic site with {@value #PAGES} pages whose downloads block for {@code latencyMillis},
+ * reported as pages per second.
+ * <p>
+ * {@code platform} runs downloads on a fixed pool of {@code downloaders} threads, {@code virtual} runs
+ * every download on a virtual thread with at most {@code downloaders} of them at a time,
+ * see {@link WebCrawler#virtual}. The throughput of both is bounded by {@code downloaders / latency}
+ * and by the width of the crawl frontier; the virtual one gets there without a platform thread per download.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(CrawlBenchmark.PAGES)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CrawlBenchmark {
+    public static final int PAGES = 4096;
+    private static final int HOSTS = 64;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"16", "128", "1024"})
+    public int downloaders;
+
+    @Param({"10"})
+    public long latencyMillis;
+
+    private WebCrawler crawler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimulatedDownloader downloader = new SimulatedDownloader(PAGES, HOSTS, latencyMillis, 1);
+        int extractors = Runtime.getRuntime().availableProcessors();
+        crawler = mode.equals("virtual")
+                ? WebCrawler.virtual(downloader, downloaders, extractors, downloaders)
+                : new WebCrawler(downloader, downloaders, extractors, downloaders);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        crawler.close();
+    }
+
+    @Benchmark
+    public List<String> crawl() {
+        return crawler.download(SimulatedDownloader.url(0, HOSTS), Integer.SIZE).getDownloaded();
+    }
+}
@@ -0,0 +1,60 @@
+package info.kgeorgiy.ja.shchetinin.crawler.bench;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Downloader of a synthetic site graph that blocks for a fixed latency on every download, as network I/O does.
+ * <p>
+ * Page {@code i} links to pages {@code 2i + 1} and {@code 2i + 2}, so every page is reachable from page {@code 0},
+ * and to a few random pages. Pages are spread over {@code hosts} hosts.
+ */
+public class SimulatedDownloader implements Downloader {
+    private final List<List<String>> links;
+    private final long latencyMillis;
+
+    public SimulatedDownloader(int pages, int hosts, long latencyMillis, long seed) {
+        this.latencyMillis = latencyMillis;
+        Random random = new Random(seed);
+        links = new ArrayList<>(pages);
+        for (int i = 0; i < pages; i++) {
+            List<String> page = new ArrayList<>();
+            for (long child = 2L * i + 1; child <= 2L * i + 2 && child < pages; child++) {
+                page.add(url((int) child, hosts));
+            }
+            for (int k = random.nextInt(4); k > 0; k--) {
+                page.add(url(random.nextInt(pages), hosts));
+            }
+            links.add(List.copyOf(page));
+        }
+    }
+
+    /**
+     * Returns URL of the page.
+     *
+     * @param page  index of the page
+     * @param hosts number of hosts
+     * @return URL of the page
+     */
+    public static String url(int page, int hosts) {
+        return "http://h" + page % hosts + ".example/p" + page;
+    }
+
+    @Override
+    public Document download(String url) throws IOException {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + url);
+        }
+        List<String> page = links.get(Integer.parseInt(url.substring(url.lastIndexOf("/p") + 2)));
+        return () -> page;
+    }
+}
@@ -0,0 +1,12 @@
+/**
+ * The {@code info.kgeorgiy.ja.shchetinin.crawler.bench} package provides JMH benchmarks of
+ * {@link info.kgeorgiy.ja.shchetinin.crawler.WebCrawler}.
+ * <p>
+ * It is built and run the same way as {@link info.kgeorgiy.ja.shchetinin.walk.bench}.
+ * <ul>
+ *     <li>{@link info.kgeorgiy.ja.shchetinin.crawler.bench.CrawlBenchmark}: pages per second of platform
+ *     and virtual thread downloaders against a {@link info.kgeorgiy.ja.shchetinin.crawler.bench.SimulatedDownloader}
+ *     with injected latency.</li>
+ * </ul>
+ */
+package info.kgeorgiy.ja.shchetinin.crawler.bench;
@@ -0,0 +1,65 @@
+package info.kgeorgiy.ja.shchetinin.iterative.bench;
+
+import info.kgeorgiy.ja.shchetinin.iterative.IterativeParallelism;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Strided reduction over different list implementations and sizes.
+ * Time per call should grow linearly with {@code size} for every {@code listType},
+ * including {@link LinkedList} that is copied to an array once per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IterationBenchmark {
+    @Param({"array", "linked", "sublist", "immutable"})
+    public String listType;
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"1", "7"})
+    public int step;
+
+    @Param({"4"})
+    public int threads;
+
+    private final IterativeParallelism parallelism = new IterativeParallelism();
+    private List<Integer> values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(size);
+        List<Integer> source = new ArrayList<>(size + 2);
+        for (int i = 0; i < size + 2; i++) {
+            source.add(random.nextInt());
+        }
+        values = switch (listType) {
+            case "array" -> new ArrayList<>(source.subList(0, size));
+            case "linked" -> new LinkedList<>(source.subList(0, size));
+            case "sublist" -> source.subList(1, size + 1);
+            case "immutable" -> List.copyOf(source.subList(0, size));
+            default -> throw new IllegalArgumentException("Unknown list type: " + listType);
+        };
+    }
+
+    @Benchmark
+    public Integer maximum() throws InterruptedException {
+        return parallelism.maximum(threads, values, Comparator.naturalOrder(), step);
+    }
+
+    @Benchmark
+    public int count() throws InterruptedException {
+        return parallelism.count(threads, values, x -> (x & 1) == 0, step);
+    }
+}
@@ -0,0 +1,61 @@
+package info.kgeorgiy.ja.shchetinin.iterative.bench;
+
+import info.kgeorgiy.ja.shchetinin.iterative.IterativeParallelism;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Strided reduction with large steps, where only a few elements of the list are visited.
+ * <p>
+ * {@code work} spends a fixed amount of CPU on every visited element, so the call takes as long
+ * as the worker with the most visited elements: with balanced slices the time is proportional to
+ * {@code size / step / threads}. {@code cheap} shows the cost of the partitioning itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StrideBenchmark {
+    @Param({"1048576"})
+    public int size;
+
+    @Param({"1", "7", "1024", "65536", "150000"})
+    public int step;
+
+    @Param({"4", "16"})
+    public int threads;
+
+    @Param({"100"})
+    public long tokens;
+
+    private final IterativeParallelism parallelism = new IterativeParallelism();
+    private List<Integer> values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(i);
+        }
+    }
+
+    @Benchmark
+    public int work() throws InterruptedException {
+        return parallelism.count(threads, values, x -> {
+            Blackhole.consumeCPU(tokens);
+            return (x & 1) == 0;
+        }, step);
+    }
+
+    @Benchmark
+    public Integer cheap() throws InterruptedException {
+        return parallelism.maximum(threads, values, Comparator.naturalOrder(), step);
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * The {@code info.kgeorgiy.ja.shchetinin.iterative.bench} package provides JMH benchmarks of
+ * {@link info.kgeorgiy.ja.shchetinin.iterative.IterativeParallelism}.
+ * <p>
+ * It is built and run the same way as {@link info.kgeorgiy.ja.shchetinin.walk.bench}.
+ * <ul>
+ *     <li>{@link info.kgeorgiy.ja.shchetinin.iterative.bench.IterationBenchmark}: strided reduction
+ *     over array-backed, linked, sublist and immutable lists of growing size.</li>
+ *     <li>{@link info.kgeorgiy.ja.shchetinin.iterative.bench.StrideBenchmark}: balance of work
+ *     between threads for large steps.</li>
+ * </ul>
+ */
+package info.kgeorgiy.ja.shchetinin.iterative.bench;
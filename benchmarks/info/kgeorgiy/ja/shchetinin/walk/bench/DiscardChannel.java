@@ -0,0 +1,32 @@
+package info.kgeorgiy.ja.shchetinin.walk.bench;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Channel that drops everything written to it and counts bytes.
+ */
+public class DiscardChannel implements WritableByteChannel {
+    private long written;
+
+    @Override
+    public int write(ByteBuffer src) {
+        int remaining = src.remaining();
+        src.position(src.limit());
+        written += remaining;
+        return remaining;
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+    }
+}
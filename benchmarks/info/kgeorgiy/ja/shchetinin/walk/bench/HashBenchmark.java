@@ -0,0 +1,65 @@
+package info.kgeorgiy.ja.shchetinin.walk.bench;
+
+import info.kgeorgiy.ja.shchetinin.walk.AbstractHashCalculator;
+import info.kgeorgiy.ja.shchetinin.walk.ChannelReadStrategy;
+import info.kgeorgiy.ja.shchetinin.walk.HashRegistry;
+import info.kgeorgiy.ja.shchetinin.walk.MappedReadStrategy;
+import info.kgeorgiy.ja.shchetinin.walk.ReadStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing throughput of a single file per algorithm, file size and read strategy.
+ * Files are created once per trial and stay in the page cache, so the score is CPU-bound hashing cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashBenchmark {
+    @Param({"jenkins", "sha-1", "sha-256", "crc32c", "xxhash64", "crc32c+sha-256", "tree-sha-256"})
+    public String hashType;
+
+    @Param({"4096", "1048576", "268435456"})
+    public long size;
+
+    @Param({"channel", "mmap"})
+    public String read;
+
+    private Path file;
+    private ReadStrategy strategy;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("walk-bench", ".bin");
+        byte[] block = new byte[1 << 16];
+        new Random(size).nextBytes(block);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += block.length) {
+                out.write(block, 0, (int) Math.min(block.length, size - written));
+            }
+        }
+        strategy = read.equals("mmap") ? new MappedReadStrategy() : new ChannelReadStrategy();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public byte[] hash(Throughput throughput) throws IOException {
+        AbstractHashCalculator calculator = HashRegistry.calculator(hashType);
+        byte[] digest = calculator.calcHash(file, strategy);
+        throughput.add(1, size);
+        return digest;
+    }
+}
@@ -0,0 +1,70 @@
+package info.kgeorgiy.ja.shchetinin.walk.bench;
+
+import info.kgeorgiy.ja.shchetinin.walk.HashWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of formatting one output line: {@link HashWriter} against the original
+ * {@code StringBuilder} and {@code String.format} formatting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputBenchmark {
+    private static final int LINES = 1024;
+
+    @Param({"4", "20"})
+    public int digestLength;
+
+    private byte[][] digests;
+    private String[] filenames;
+    private HashWriter writer;
+    private DiscardChannel channel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(digestLength);
+        digests = new byte[LINES][digestLength];
+        filenames = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            random.nextBytes(digests[i]);
+            filenames[i] = "/var/lib/artifacts/store/" + Integer.toHexString(random.nextInt()) + "/file-" + i + ".bin";
+        }
+        channel = new DiscardChannel();
+        writer = new HashWriter(channel, new int[]{digestLength}, 0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long hashWriter(Throughput throughput) throws IOException {
+        for (int i = 0; i < LINES; i++) {
+            writer.write(digests[i], filenames[i]);
+        }
+        writer.flush();
+        throughput.add(LINES, 0);
+        return channel.getWritten();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int stringFormat(Throughput throughput) {
+        StringWriter out = new StringWriter();
+        for (int i = 0; i < LINES; i++) {
+            StringBuilder line = new StringBuilder();
+            String hash = String.format("%0" + digestLength * 2 + "x", new BigInteger(1, digests[i]));
+            line.append(hash).append(" ").append(filenames[i]).append("\n");
+            out.write(line.toString());
+        }
+        throughput.add(LINES, 0);
+        return out.getBuffer().length();
+    }
+}
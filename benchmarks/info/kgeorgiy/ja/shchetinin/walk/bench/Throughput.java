@@ -0,0 +1,31 @@
+package info.kgeorgiy.ja.shchetinin.walk.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary JMH counters, reported as rates next to the primary score:
+ * {@code megabytes} is MB/s of hashed data and {@code files} is files/s.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+    private static final double MEGABYTE = 1_000_000;
+
+    public double megabytes;
+    public long files;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        megabytes = 0;
+        files = 0;
+    }
+
+    public void add(long files, long bytes) {
+        this.files += files;
+        this.megabytes += bytes / MEGABYTE;
+    }
+}
@@ -0,0 +1,87 @@
+package info.kgeorgiy.ja.shchetinin.walk.bench;
+
+import info.kgeorgiy.ja.shchetinin.walk.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walk of a synthetic tree of small files: traversal, hashing and writing of output lines
+ * to a discarding channel, with the given number of hashing threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WalkBenchmark {
+    private static final int FILES_PER_DIRECTORY = 100;
+    private static final int FILE_SIZE = 1024;
+
+    @Param({"1000", "100000"})
+    public int files;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"jenkins", "xxhash64"})
+    public String hashType;
+
+    private Path root;
+    private long bytes;
+    private FileTreeWalker walker;
+    private FileHasher hasher;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("walk-bench");
+        byte[] content = new byte[FILE_SIZE];
+        for (int i = 0; i < files; i++) {
+            Path directory = root.resolve("d" + i / FILES_PER_DIRECTORY);
+            Files.createDirectories(directory);
+            content[0] = (byte) i;
+            Files.write(directory.resolve("f" + i), content);
+        }
+        bytes = (long) files * FILE_SIZE;
+        WalkOptions options = WalkOptions.parse(new String[]{"input", "output", hashType});
+        walker = new FileTreeWalker(true, Integer.MAX_VALUE, FileTreeWalker.LinkPolicy.FOLLOW,
+                options.getIncludes(), options.getExcludes());
+        hasher = new FileHasher(options, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Benchmark
+    public long walk(Throughput throughput) throws IOException {
+        DiscardChannel channel = new DiscardChannel();
+        int[] digestLengths = HashRegistry.calculator(hashType).getDigestLengths();
+        try (HashWriter writer = new HashWriter(channel, digestLengths, 0);
+             HashPipeline pipeline = new HashPipeline(writer, threads, threads * 16)) {
+            walker.walk(root.toString(), (name, path, attributes) -> pipeline.submit(name, () -> hasher.hash(path, attributes)));
+        }
+        throughput.add(files, bytes);
+        return channel.getWritten();
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * The {@code info.kgeorgiy.ja.shchetinin.walk.bench} package provides JMH benchmarks of the walk tools.
+ * <p>
+ * The {@code benchmarks} directory is a separate source root: it is compiled together with
+ * the main sources and {@code org.openjdk.jmh:jmh-core} with its annotation processor
+ * {@code jmh-generator-annprocess}, and run with {@code org.openjdk.jmh.Main}.
+ * Like the main sources, which use virtual threads, it requires Java 21 or later.
+ * <ul>
+ *     <li>{@link info.kgeorgiy.ja.shchetinin.walk.bench.HashBenchmark}: hashing throughput
+ *     per algorithm on small, medium and huge files.</li>
+ *     <li>{@link info.kgeorgiy.ja.shchetinin.walk.bench.WalkBenchmark}: walk of synthetic trees with many files.</li>
+ *     <li>{@link info.kgeorgiy.ja.shchetinin.walk.bench.OutputBenchmark}: cost of formatting output lines.</li>
+ * </ul>
+ * Besides the primary score every benchmark reports {@code megabytes} (MB/s) and {@code files} (files/s)
+ * secondary counters, see {@link info.kgeorgiy.ja.shchetinin.walk.bench.Throughput}.
+ */
+package info.kgeorgiy.ja.shchetinin.walk.bench;
@@ -0,0 +1,70 @@
+package info.kgeorgiy.ja.shchetinin.crawler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent Bloom filter of 64-bit fingerprints. Bits are set with CAS, lookups take no locks.
+ * Bit indices are derived from the fingerprint by double hashing of its halves.
+ */
+class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long size;
+    private final int hashes;
+
+    /**
+     * Constructs a filter sized for the number of elements and false positive rate.
+     *
+     * @param expected          expected number of elements
+     * @param falsePositiveRate false positive rate at {@code expected} elements
+     */
+    BloomFilter(long expected, double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate should be in (0, 1): " + falsePositiveRate);
+        }
+        long n = Math.max(1, expected);
+        long optimal = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimal + 63) / 64));
+        bits = new AtomicLongArray(words);
+        size = (long) words * 64;
+        hashes = Math.max(1, (int) Math.round((double) size / n * Math.log(2)));
+    }
+
+    private long index(long fingerprint, int i) {
+        long h1 = fingerprint >>> 32;
+        long h2 = fingerprint & 0xffffffffL | 1;
+        return Math.floorMod(h1 + i * h2, size);
+    }
+
+    /**
+     * Returns whether the fingerprint may have been added.
+     *
+     * @param fingerprint fingerprint
+     * @return {@code false} if it was definitely not added
+     */
+    boolean mightContain(long fingerprint) {
+        for (int i = 0; i < hashes; i++) {
+            long index = index(fingerprint, i);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the fingerprint.
+     *
+     * @param fingerprint fingerprint
+     */
+    void add(long fingerprint) {
+        for (int i = 0; i < hashes; i++) {
+            long index = index(fingerprint, i);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+}
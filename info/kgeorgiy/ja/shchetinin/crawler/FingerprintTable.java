@@ -0,0 +1,286 @@
+package info.kgeorgiy.ja.shchetinin.crawler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Open addressing table from non-zero 64-bit fingerprints to depths with linear probing.
+ * Slots are kept in primitive arrays or in a memory-mapped file; the table doubles when it is 60% full.
+ * Not thread-safe.
+ */
+class FingerprintTable implements Closeable {
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final double MAX_LOAD = 0.6;
+
+    /**
+     * Storage of slots, a slot with key {@code 0} is empty.
+     */
+    interface Slots extends Closeable {
+        long capacity();
+
+        long key(long slot);
+
+        int depth(long slot);
+
+        void set(long slot, long key, int depth);
+    }
+
+    /**
+     * Creates empty storage.
+     */
+    @FunctionalInterface
+    interface SlotsFactory {
+        Slots create(long capacity) throws IOException;
+    }
+
+    private final SlotsFactory factory;
+    private Slots slots;
+    private long size;
+
+    private FingerprintTable(SlotsFactory factory) {
+        this.factory = factory;
+        slots = create(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns table with slots in heap arrays.
+     *
+     * @return new table
+     */
+    static FingerprintTable inMemory() {
+        return new FingerprintTable(HeapSlots::new);
+    }
+
+    /**
+     * Returns table with slots in memory-mapped temporary files in the directory.
+     *
+     * @param directory directory of files
+     * @return new table
+     */
+    static FingerprintTable onDisk(Path directory) {
+        return new FingerprintTable(capacity -> new MappedSlots(directory, capacity));
+    }
+
+    private Slots create(long capacity) {
+        try {
+            return factory.create(capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create fingerprint table", e);
+        }
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private long find(long key) {
+        long mask = slots.capacity() - 1;
+        long slot = mix(key) & mask;
+        while (true) {
+            long current = slots.key(slot);
+            if (current == key || current == 0) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns depth of the key.
+     *
+     * @param key non-zero key
+     * @return depth or {@link VisitedStore#NOT_VISITED}
+     */
+    int get(long key) {
+        long slot = find(key);
+        return slots.key(slot) == 0 ? VisitedStore.NOT_VISITED : slots.depth(slot);
+    }
+
+    /**
+     * Sets depth of the key if it is smaller than the current one.
+     *
+     * @param key   non-zero key
+     * @param depth depth
+     * @return previous depth or {@link VisitedStore#NOT_VISITED}
+     */
+    int putMin(long key, int depth) {
+        long slot = find(key);
+        if (slots.key(slot) == 0) {
+            insert(slot, key, depth);
+            return VisitedStore.NOT_VISITED;
+        }
+        int previous = slots.depth(slot);
+        if (depth < previous) {
+            slots.set(slot, key, depth);
+        }
+        return previous;
+    }
+
+    /**
+     * Adds a key that is known to be absent, without comparing it with keys on its probe sequence.
+     *
+     * @param key   non-zero key
+     * @param depth depth
+     */
+    void insertAbsent(long key, int depth) {
+        long mask = slots.capacity() - 1;
+        long slot = mix(key) & mask;
+        while (slots.key(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, key, depth);
+    }
+
+    private void insert(long slot, long key, int depth) {
+        slots.set(slot, key, depth);
+        if (++size > slots.capacity() * MAX_LOAD) {
+            grow();
+        }
+    }
+
+    private void grow() {
+        Slots old = slots;
+        slots = create(old.capacity() * 2);
+        for (long i = 0; i < old.capacity(); i++) {
+            long key = old.key(i);
+            if (key != 0) {
+                slots.set(find(key), key, old.depth(i));
+            }
+        }
+        try {
+            old.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to release fingerprint table", e);
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        slots.close();
+    }
+
+    private static class HeapSlots implements Slots {
+        private final long[] keys;
+        private final int[] depths;
+
+        HeapSlots(long capacity) {
+            if (capacity > 1 << 30) {
+                throw new IllegalStateException("Fingerprint table is too large: " + capacity);
+            }
+            keys = new long[(int) capacity];
+            depths = new int[(int) capacity];
+        }
+
+        @Override
+        public long capacity() {
+            return keys.length;
+        }
+
+        @Override
+        public long key(long slot) {
+            return keys[(int) slot];
+        }
+
+        @Override
+        public int depth(long slot) {
+            return depths[(int) slot];
+        }
+
+        @Override
+        public void set(long slot, long key, int depth) {
+            keys[(int) slot] = key;
+            depths[(int) slot] = depth;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Slots of 12 bytes in a temporary file mapped in regions of {@value #REGION_SLOTS} slots.
+     * <p>
+     * A mapping can not be released explicitly before Java 22: {@link #close()} deletes the file and drops
+     * the references to the regions, their memory is unmapped when they are garbage collected.
+     * Tables of a crawl are closed when it finishes, so mappings do not outlive their crawl.
+     * Where mapped files can not be deleted, as on Windows, the file is deleted on exit.
+     */
+    private static class MappedSlots implements Slots {
+        private static final int SLOT_BYTES = 12;
+        private static final int REGION_SLOTS = 1 << 26;
+
+        private final Path file;
+        private final long capacity;
+        private MappedByteBuffer[] regions;
+
+        MappedSlots(Path directory, long capacity) throws IOException {
+            Files.createDirectories(directory);
+            this.file = Files.createTempFile(directory, "visited", ".table");
+            this.capacity = capacity;
+            regions = new MappedByteBuffer[(int) ((capacity + REGION_SLOTS - 1) / REGION_SLOTS)];
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                for (int i = 0; i < regions.length; i++) {
+                    long slots = Math.min(REGION_SLOTS, capacity - (long) i * REGION_SLOTS);
+                    regions[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * REGION_SLOTS * SLOT_BYTES, slots * SLOT_BYTES);
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        }
+
+        private MappedByteBuffer region(long slot) {
+            return regions[(int) (slot / REGION_SLOTS)];
+        }
+
+        private static int offset(long slot) {
+            return (int) (slot % REGION_SLOTS) * SLOT_BYTES;
+        }
+
+        @Override
+        public long capacity() {
+            return capacity;
+        }
+
+        @Override
+        public long key(long slot) {
+            return region(slot).getLong(offset(slot));
+        }
+
+        @Override
+        public int depth(long slot) {
+            return region(slot).getInt(offset(slot) + Long.BYTES);
+        }
+
+        @Override
+        public void set(long slot, long key, int depth) {
+            MappedByteBuffer region = region(slot);
+            int offset = offset(slot);
+            region.putLong(offset, key);
+            region.putInt(offset + Long.BYTES, depth);
+        }
+
+        @Override
+        public void close() {
+            regions = null;
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package info.kgeorgiy.ja.shchetinin.crawler;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Store of 64-bit URL fingerprints: a concurrent {@link BloomFilter} in front of exact {@link FingerprintTable}s.
+ * <p>
+ * Fingerprints are split between {@value #SEGMENTS} tables by their highest bits, every table is guarded
+ * by its own lock, so visits of different URLs rarely wait for each other.
+ * The filter answers lookups of new URLs without taking a lock, and lets new URLs be inserted
+ * without comparing them with keys on the probe sequence. Two URLs with the same fingerprint are
+ * treated as one, the probability of a collision among {@code n} URLs is about {@code n^2 / 2^65}.
+ */
+class FingerprintVisitedStore implements VisitedStore {
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+
+    private final BloomFilter bloom;
+    private final FingerprintTable[] segments = new FingerprintTable[SEGMENTS];
+
+    FingerprintVisitedStore(long expectedUrls, double falsePositiveRate, Supplier<FingerprintTable> tables) {
+        this.bloom = new BloomFilter(expectedUrls, falsePositiveRate);
+        try {
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = tables.get();
+            }
+        } catch (RuntimeException e) {
+            closeSegments(e);
+            throw e;
+        }
+    }
+
+    private FingerprintTable segment(long fingerprint) {
+        return segments[(int) (fingerprint >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    /**
+     * Returns non-zero 64-bit fingerprint of the string: FNV-1a over its chars finished with the MurmurHash3 mixer.
+     *
+     * @param s the string
+     * @return fingerprint
+     */
+    static long fingerprint(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    @Override
+    public int visit(String url, int depth) {
+        long fingerprint = fingerprint(url);
+        FingerprintTable table = segment(fingerprint);
+        // all visits of the fingerprint take the same lock, so the filter can not change between the check and the insert
+        synchronized (table) {
+            if (!bloom.mightContain(fingerprint)) {
+                bloom.add(fingerprint);
+                table.insertAbsent(fingerprint, depth);
+                return NOT_VISITED;
+            }
+            return table.putMin(fingerprint, depth);
+        }
+    }
+
+    @Override
+    public int depth(String url) {
+        long fingerprint = fingerprint(url);
+        if (!bloom.mightContain(fingerprint)) {
+            return NOT_VISITED;
+        }
+        FingerprintTable table = segment(fingerprint);
+        synchronized (table) {
+            return table.get(fingerprint);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException error = closeSegments(null);
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Closes all created segments.
+     *
+     * @param failure exception to add failures of closing to, {@code null} to collect them in a new one
+     * @return the first failure of closing if {@code failure} is {@code null}
+     */
+    private IOException closeSegments(Exception failure) {
+        IOException error = null;
+        for (FingerprintTable table : segments) {
+            if (table == null) {
+                continue;
+            }
+            try {
+                synchronized (table) {
+                    table.close();
+                }
+            } catch (IOException e) {
+                if (failure != null) {
+                    failure.addSuppressed(e);
+                } else if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        return error;
+    }
+}
@@ -0,0 +1,48 @@
+package info.kgeorgiy.ja.shchetinin.crawler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Store of URL strings that keeps extracted links of pages.
+ */
+class MemoryVisitedStore implements VisitedStore {
+    private final Map<String, Page> pages = new ConcurrentHashMap<>();
+
+    /**
+     * Minimal depth of a page and its links, {@code null} until they are extracted.
+     */
+    private record Page(int depth, List<String> links) {
+    }
+
+    @Override
+    public int visit(String url, int depth) {
+        int[] previous = {NOT_VISITED};
+        pages.compute(url, (k, page) -> {
+            if (page == null) {
+                return new Page(depth, null);
+            }
+            previous[0] = page.depth();
+            return depth < page.depth() ? new Page(depth, page.links()) : page;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public int depth(String url) {
+        Page page = pages.get(url);
+        return page == null ? NOT_VISITED : page.depth();
+    }
+
+    @Override
+    public void putLinks(String url, List<String> links) {
+        pages.computeIfPresent(url, (k, page) -> new Page(page.depth(), links));
+    }
+
+    @Override
+    public List<String> getLinks(String url) {
+        Page page = pages.get(url);
+        return page == null ? null : page.links();
+    }
+}
@@ -0,0 +1,53 @@
+package info.kgeorgiy.ja.shchetinin.crawler;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Limit of request rate to one host: a token bucket refilled with {@code requestsPerSecond} tokens per second
+ * holding at most {@code burst} tokens, and the minimal delay between starts of consecutive requests.
+ *
+ * @param requestsPerSecond average number of requests per second, {@link Double#POSITIVE_INFINITY} for no limit
+ * @param burst             number of requests that may start at once after the host was idle
+ * @param crawlDelay        minimal delay between starts of requests
+ */
+public record RateLimit(double requestsPerSecond, int burst, Duration crawlDelay) {
+    /**
+     * No limit of request rate.
+     */
+    public static final RateLimit UNLIMITED = new RateLimit(Double.POSITIVE_INFINITY, 1, Duration.ZERO);
+
+    public RateLimit {
+        if (!(requestsPerSecond > 0)) {
+            throw new IllegalArgumentException("Requests per second should be positive: " + requestsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst should be positive: " + burst);
+        }
+        Objects.requireNonNull(crawlDelay);
+        if (crawlDelay.isNegative()) {
+            throw new IllegalArgumentException("Crawl delay should not be negative: " + crawlDelay);
+        }
+    }
+
+    /**
+     * Returns limit of request rate without crawl delay.
+     *
+     * @param requestsPerSecond average number of requests per second
+     * @param burst             number of requests that may start at once
+     * @return limit
+     */
+    public static RateLimit perSecond(double requestsPerSecond, int burst) {
+        return new RateLimit(requestsPerSecond, burst, Duration.ZERO);
+    }
+
+    /**
+     * Returns limit that only keeps the delay between starts of requests, like {@code Crawl-delay} of robots.txt.
+     *
+     * @param crawlDelay minimal delay between starts of requests
+     * @return limit
+     */
+    public static RateLimit crawlDelay(Duration crawlDelay) {
+        return new RateLimit(Double.POSITIVE_INFINITY, 1, crawlDelay);
+    }
+}
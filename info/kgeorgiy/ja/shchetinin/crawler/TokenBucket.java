@@ -0,0 +1,86 @@
+package info.kgeorgiy.ja.shchetinin.crawler;
+
+/**
+ * Token bucket of one host with times in {@link System#nanoTime()} units. Not thread-safe.
+ *
+ * @see RateLimit
+ */
+class TokenBucket {
+    private final double tokensPerNano;
+    private final int capacity;
+    private final long delayNanos;
+    private double tokens;
+    private long updated;
+    private long lastStart;
+    private boolean started;
+
+    TokenBucket(RateLimit limit, long now) {
+        tokensPerNano = limit.requestsPerSecond() / 1e9;
+        capacity = limit.burst();
+        delayNanos = limit.crawlDelay().toNanos();
+        tokens = capacity;
+        updated = now;
+    }
+
+    private void refill(long now) {
+        tokens = Double.isInfinite(tokensPerNano) ? capacity : Math.min(capacity, tokens + (now - updated) * tokensPerNano);
+        updated = now;
+    }
+
+    /**
+     * Returns whether the bucket never delays requests.
+     *
+     * @return whether there is neither rate limit nor crawl delay
+     */
+    boolean isUnlimited() {
+        return Double.isInfinite(tokensPerNano) && delayNanos == 0;
+    }
+
+    /**
+     * Returns time until a request may start.
+     *
+     * @param now current time
+     * @return time in nanoseconds, {@code 0} if a request may start now
+     */
+    long waitTime(long now) {
+        refill(now);
+        long wait = started ? lastStart + delayNanos - now : 0;
+        if (tokens < 1) {
+            wait = Math.max(wait, (long) Math.ceil((1 - tokens) / tokensPerNano));
+        }
+        return Math.max(0, wait);
+    }
+
+    /**
+     * Takes a token if a request may start now.
+     *
+     * @param now current time
+     * @return {@code 0} if the token was taken, otherwise time to wait before the next attempt, in nanoseconds
+     */
+    long tryAcquire(long now) {
+        long wait = waitTime(now);
+        if (wait > 0) {
+            return wait;
+        }
+        tokens -= 1;
+        lastStart = now;
+        started = true;
+        return 0;
+    }
+
+    /**
+     * Returns time until the bucket is full and the crawl delay has passed,
+     * so forgetting the bucket does not allow extra requests.
+     *
+     * @param now current time
+     * @return time in nanoseconds, {@code 0} if the bucket is idle
+     */
+    long idleIn(long now) {
+        refill(now);
+        long wait = started ? lastStart + delayNanos - now : 0;
+        if (tokens < capacity) {
+            wait = Math.max(wait, (long) Math.ceil((capacity - tokens) / tokensPerNano));
+        }
+        return Math.max(0, wait);
+    }
+}
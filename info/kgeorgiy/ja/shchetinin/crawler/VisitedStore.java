@@ -0,0 +1,110 @@
+package info.kgeorgiy.ja.shchetinin.crawler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * URLs found during one crawl with the minimal depth each of them was found at.
+ * <p>
+ * A store may also keep extracted links of pages. A page found at a smaller depth after its links were extracted
+ * has to be followed again: with kept links it is done without downloading the page again.
+ * Implementations are thread-safe.
+ *
+ * @see WebCrawler#setVisitedStore(java.util.function.Supplier)
+ */
+public interface VisitedStore extends Closeable {
+    /**
+     * Depth of URLs that were not visited.
+     */
+    int NOT_VISITED = Integer.MAX_VALUE;
+
+    /**
+     * Records that the URL was found at the depth, if it is smaller than depths it was found at before.
+     *
+     * @param url   the URL
+     * @param depth depth the URL was found at
+     * @return minimal depth the URL was found at before, {@link #NOT_VISITED} if it is new
+     * @throws java.io.UncheckedIOException if the store failed
+     */
+    int visit(String url, int depth);
+
+    /**
+     * Returns minimal depth the URL was found at.
+     *
+     * @param url the URL
+     * @return minimal depth, {@link #NOT_VISITED} if the URL is new
+     * @throws java.io.UncheckedIOException if the store failed
+     */
+    int depth(String url);
+
+    /**
+     * Keeps extracted links of the page, if the store keeps links.
+     *
+     * @param url   URL of the page
+     * @param links links of the page
+     */
+    default void putLinks(String url, List<String> links) {
+    }
+
+    /**
+     * Returns kept links of the page.
+     *
+     * @param url URL of the page
+     * @return links or {@code null} if they were not extracted yet or the store does not keep links
+     */
+    default List<String> getLinks(String url) {
+        return null;
+    }
+
+    /**
+     * Releases resources of the store.
+     *
+     * @throws IOException if the store failed
+     */
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Returns store of URL strings that keeps links of pages, so no page is downloaded twice.
+     *
+     * @return new store
+     */
+    static VisitedStore memory() {
+        return new MemoryVisitedStore();
+    }
+
+    /**
+     * Returns store of 64-bit URL fingerprints in primitive open addressing tables behind a Bloom filter.
+     * The store does not keep links.
+     * <p>
+     * Fingerprints take 12-byte slots of tables that are 30% to 60% full, that is 20 to 40 bytes per URL,
+     * at least 768 KiB for all tables, and half as much again while a table doubles.
+     * The Bloom filter takes {@code -ln(falsePositiveRate) / ln(2)^2} bits per expected URL,
+     * about 1.2 bytes at 1%.
+     *
+     * @param expectedUrls      expected number of URLs, used to size the Bloom filter
+     * @param falsePositiveRate false positive rate of the Bloom filter at {@code expectedUrls} URLs
+     * @return new store
+     */
+    static VisitedStore compact(long expectedUrls, double falsePositiveRate) {
+        return new FingerprintVisitedStore(expectedUrls, falsePositiveRate, FingerprintTable::inMemory);
+    }
+
+    /**
+     * Returns store like {@link #compact(long, double)} with the fingerprint tables in memory-mapped
+     * temporary files in the directory, so only the Bloom filter is kept on the heap.
+     * The files are deleted when the store is closed.
+     *
+     * @param directory         directory of the table file
+     * @param expectedUrls      expected number of URLs, used to size the Bloom filter
+     * @param falsePositiveRate false positive rate of the Bloom filter at {@code expectedUrls} URLs
+     * @return new store
+     * @throws java.io.UncheckedIOException if the file can not be created
+     */
+    static VisitedStore disk(Path directory, long expectedUrls, double falsePositiveRate) {
+        return new FingerprintVisitedStore(expectedUrls, falsePositiveRate, () -> FingerprintTable.onDisk(directory));
+    }
+}
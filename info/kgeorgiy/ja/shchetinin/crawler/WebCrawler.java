@@ -3,57 +3,274 @@ package info.kgeorgiy.ja.shchetinin.crawler;
 import info.kgeorgiy.java.advanced.crawler.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public class WebCrawler implements AdvancedCrawler {
 
     private final Downloader downloader;
     private final ExecutorService downloaders;
+    private final Semaphore downloadPermits;
     private final ExecutorService extractors;
     private final int perHost;
     private final Map<String, HostManager> amHost;
+    private final Set<Crawl> crawls = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService timer;
+    private final Map<String, RateLimit> rateLimits = new ConcurrentHashMap<>();
+    private volatile RateLimit defaultRateLimit = RateLimit.UNLIMITED;
+    private volatile Supplier<? extends VisitedStore> visitedStores = VisitedStore::memory;
+    private volatile boolean closed;
 
+    /**
+     * Downloads of one host: at most {@code perHost} of them run, the others wait in order of submission.
+     * A download also waits for a token of the host's {@link RateLimit}; waiting downloads stay in the queue
+     * and are started by the timer, so they do not occupy downloader threads.
+     * The token is taken when the download starts on a downloader thread, not when it is submitted,
+     * so time spent in the executor queue can not bunch requests together. Only one submitted download
+     * of a limited host waits for a thread at a time; if it still can not start, it returns to the queue.
+     * A crawler created by {@link #virtual} starts a virtual thread per download that takes the token
+     * after a permit of the global limit.
+     * <p>
+     * State is guarded by the manager's lock. A manager without running and waiting downloads is marked removed
+     * and removed from {@code amHost} under the lock, when its token bucket is idle, so a task is never added
+     * to a removed manager: {@link #addTask(String, Runnable)} takes a new one instead.
+     * <p>
+     * After the crawler is closed, queued downloads are dropped. A download being added throws
+     * {@link RejectedExecutionException} to its caller; crawls of the other ones are aborted by {@link #close()}.
+     */
     private class HostManager {
-        private final Queue<Runnable> tasks;
-        private final AtomicInteger runningTasks = new AtomicInteger(0);
         private final String host;
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        private final TokenBucket bucket;
+        private int running;
+        private int starting;
+        private boolean wakeUpScheduled;
+        private boolean removed;
 
-        public HostManager(String host) {
+        HostManager(String host) {
             this.host = host;
-            tasks = new ConcurrentLinkedDeque<>();
+            bucket = new TokenBucket(rateLimits.getOrDefault(host, defaultRateLimit), System.nanoTime());
         }
 
-        public void addTask(Runnable task) {
-            if (runningTasks.get() < perHost) {
-                downloaders.submit(task);
-                runningTasks.incrementAndGet();
-                return;
+        /**
+         * Queues the task and starts downloads that are allowed to start.
+         *
+         * @param task task to run
+         * @return {@code false} if the manager was removed and the task was not accepted
+         * @throws RejectedExecutionException if the crawler is closed
+         */
+        synchronized boolean addTask(Runnable task) {
+            if (removed) {
+                return false;
             }
             tasks.add(task);
+            if (!dispatch()) {
+                throw new RejectedExecutionException("Crawler is closed");
+            }
+            return true;
         }
 
-        public void callNext() {
-            Runnable nextJob = tasks.poll();
-            if (nextJob != null) {
-                downloaders.submit(nextJob);
-            } else {
-                runningTasks.decrementAndGet();
-                if (runningTasks.get() == 0) {
-                    amHost.remove(host);
+        /**
+         * Starts downloads that are allowed to start.
+         *
+         * @return {@code false} if the downloads were rejected because the crawler is closed
+         */
+        private boolean dispatch() {
+            boolean accepted = true;
+            long now = System.nanoTime();
+            while (running < perHost && !tasks.isEmpty()) {
+                if (!bucket.isUnlimited()) {
+                    if (starting > 0) {
+                        // the next download is dispatched when this one starts
+                        return true;
+                    }
+                    long wait = bucket.waitTime(now);
+                    if (wait > 0) {
+                        wakeUp(wait);
+                        return true;
+                    }
+                }
+                try {
+                    submit(tasks.peek());
+                } catch (RejectedExecutionException e) {
+                    // crawler is closed, its crawls are aborted
+                    tasks.clear();
+                    accepted = false;
+                    break;
+                }
+                tasks.remove();
+                running++;
+                if (!bucket.isUnlimited()) {
+                    starting++;
                 }
             }
+            if (running == 0 && tasks.isEmpty()) {
+                long idle = bucket.idleIn(now);
+                if (idle > 0) {
+                    wakeUp(idle);
+                } else {
+                    removed = true;
+                    amHost.remove(host, this);
+                }
+            }
+            return accepted;
+        }
+
+        private void wakeUp(long nanos) {
+            if (wakeUpScheduled) {
+                return;
+            }
+            try {
+                timer.schedule(() -> {
+                    synchronized (this) {
+                        wakeUpScheduled = false;
+                        dispatch();
+                    }
+                }, nanos, TimeUnit.NANOSECONDS);
+                wakeUpScheduled = true;
+            } catch (RejectedExecutionException ignored) {
+                // crawler is closed
+            }
+        }
+
+        private void submit(Runnable task) {
+            downloaders.submit(() -> {
+                if (downloadPermits == null) {
+                    run(task);
+                    return;
+                }
+                try {
+                    downloadPermits.acquire();
+                } catch (InterruptedException e) {
+                    // crawler is closed
+                    return;
+                }
+                try {
+                    run(task);
+                } finally {
+                    downloadPermits.release();
+                }
+            });
+        }
+
+        private void run(Runnable task) {
+            if (!start(task)) {
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                callNext();
+            }
+        }
+
+        private synchronized boolean start(Runnable task) {
+            if (bucket.isUnlimited()) {
+                return true;
+            }
+            starting--;
+            long wait = bucket.tryAcquire(System.nanoTime());
+            if (wait > 0) {
+                running--;
+                tasks.addFirst(task);
+                wakeUp(wait);
+                return false;
+            }
+            dispatch();
+            return true;
+        }
+
+        private synchronized void callNext() {
+            running--;
+            dispatch();
+        }
+    }
+
+    private void addTask(String host, Runnable task) {
+        while (!amHost.computeIfAbsent(host, HostManager::new).addTask(task)) {
+            // the manager was removed concurrently, take a new one
         }
     }
 
     public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost) {
+        this(downloader, Executors.newFixedThreadPool(downloaders), null, extractors, perHost);
+    }
+
+    private WebCrawler(Downloader downloader, ExecutorService downloaders, Semaphore downloadPermits,
+                       int extractors, int perHost) {
         this.downloader = downloader;
-        this.downloaders = Executors.newFixedThreadPool(downloaders);
+        this.downloaders = downloaders;
+        this.downloadPermits = downloadPermits;
         this.extractors = Executors.newFixedThreadPool(extractors);
         this.perHost = perHost;
         amHost = new ConcurrentHashMap<>();
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "crawler-rate-limit");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Constructs a new WebCrawler that runs every download on its own virtual thread.
+     * <p>
+     * At most {@code downloaders} downloads of all hosts run at the same time, the others wait for a permit
+     * in order of submission. Waiting and blocked downloads do not occupy platform threads,
+     * so the limit may be much larger than the number of processors.
+     *
+     * @param downloader  downloader of pages
+     * @param downloaders maximal number of concurrently running downloads
+     * @param extractors  number of threads extracting links
+     * @param perHost     maximal number of concurrently running downloads of one host
+     * @return new crawler
+     * @throws IllegalArgumentException if {@code downloaders} is not positive
+     */
+    public static WebCrawler virtual(Downloader downloader, int downloaders, int extractors, int perHost) {
+        if (downloaders < 1) {
+            throw new IllegalArgumentException("Number of downloaders should be positive: " + downloaders);
+        }
+        ThreadFactory factory = Thread.ofVirtual().name("crawler-download-", 0).factory();
+        return new WebCrawler(downloader, Executors.newThreadPerTaskExecutor(factory),
+                new Semaphore(downloaders, true), extractors, perHost);
+    }
+
+    /**
+     * Sets factory of visited stores, a new store is created for every download call.
+     * By default URLs are kept as strings, see {@link VisitedStore#memory()}.
+     *
+     * @param visitedStores factory of visited stores
+     */
+    public void setVisitedStore(Supplier<? extends VisitedStore> visitedStores) {
+        this.visitedStores = Objects.requireNonNull(visitedStores);
+    }
+
+    /**
+     * Sets rate limit of hosts without their own limit, {@link RateLimit#UNLIMITED} by default.
+     * Hosts that have downloads running or waiting keep their current limit until they become idle.
+     *
+     * @param limit rate limit
+     */
+    public void setDefaultRateLimit(RateLimit limit) {
+        defaultRateLimit = Objects.requireNonNull(limit);
+    }
+
+    /**
+     * Sets rate limit of the host, overriding the default one.
+     * If the host has downloads running or waiting, it keeps its current limit until it becomes idle.
+     *
+     * @param host  host name
+     * @param limit rate limit, {@code null} to use the default one
+     */
+    public void setRateLimit(String host, RateLimit limit) {
+        if (limit == null) {
+            rateLimits.remove(host);
+        } else {
+            rateLimits.put(host, limit);
+        }
     }
 
     @Override
@@ -72,92 +289,215 @@ public class WebCrawler implements AdvancedCrawler {
     }
 
     private Result superDownload(String url, int depth, Set<String> excludes, List<String> hosts) {
-        Set<String> results = ConcurrentHashMap.newKeySet();
-        ConcurrentHashMap<String, IOException> errors = new ConcurrentHashMap<>();
-        Set<String> visited = ConcurrentHashMap.newKeySet();
-        Set<String> urls = ConcurrentHashMap.newKeySet();
-        urls.add(url);
-        Set<String> newHosts = null;
-        if (hosts != null) {
-            newHosts = new HashSet<>();
-            newHosts.addAll(hosts);
-        }
-        bfs(urls, 0, depth, results, errors, visited, excludes, newHosts);
-        return new Result(results.stream().toList(), errors);
-    }
-
-    private void bfs(Set<String> urls, int depth, int maxDepth,
-                     Set<String> results, ConcurrentHashMap<String, IOException> errors,
-                     Set<String> visited, Set<String> excludes, Set<String> hosts) {
-        if (depth == maxDepth) {
-            return;
+        if (closed) {
+            throw new IllegalStateException("Crawler is closed");
+        }
+        Crawl crawl = new Crawl(depth, excludes, hosts == null ? null : new HashSet<>(hosts), visitedStores.get());
+        crawls.add(crawl);
+        try {
+            // a crawl added after close() aborted the others would never finish
+            if (closed) {
+                throw new IllegalStateException("Crawler is closed");
+            }
+            crawl.start(url);
+            crawl.await();
+        } catch (InterruptedException ignored) {
+            System.out.println("Current thread was interrupted, aborting crawl");
+        } finally {
+            crawls.remove(crawl);
+            try {
+                crawl.visited.close();
+            } catch (IOException e) {
+                System.out.println("Unable to close visited store: " + e.getMessage());
+            }
+        }
+        return new Result(crawl.results.stream().toList(), crawl.errors);
+    }
+
+    /**
+     * State of one crawl. Pages are downloaded as soon as they are found and their links are followed
+     * as soon as they are extracted, without waiting for other pages of the same depth.
+     * <p>
+     * A page may be found at a smaller depth after it was scheduled, then its links are followed again
+     * with the smaller depth, so the result is the same as of a breadth-first crawl. If the page was already
+     * processed and the visited store does not keep links, the page is downloaded again.
+     * The crawl is finished when no download or extraction is pending.
+     */
+    private class Crawl {
+        private final int maxDepth;
+        private final Set<String> excludes;
+        private final Set<String> hosts;
+        private final VisitedStore visited;
+        private final Set<String> results = ConcurrentHashMap.newKeySet();
+        private final ConcurrentHashMap<String, IOException> errors = new ConcurrentHashMap<>();
+        /**
+         * Pages that are scheduled and not processed yet, their links will be followed with their current depth.
+         */
+        private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        Crawl(int maxDepth, Set<String> excludes, Set<String> hosts, VisitedStore visited) {
+            this.maxDepth = maxDepth;
+            this.excludes = excludes;
+            this.hosts = hosts;
+            this.visited = visited;
+        }
+
+        void start(String url) {
+            pending.incrementAndGet();
+            try {
+                discover(url, 0);
+            } finally {
+                finish();
+            }
+        }
+
+        void await() throws InterruptedException {
+            done.await();
+        }
+
+        /**
+         * Stops waiting for pending tasks, they will never finish after the crawler is closed.
+         */
+        void abort() {
+            done.countDown();
+        }
+
+        private void finish() {
+            if (pending.decrementAndGet() == 0) {
+                done.countDown();
+            }
         }
-        CountDownLatch count = new CountDownLatch(urls.size());
-        Set<String> newUrls = ConcurrentHashMap.newKeySet();
-        for (String url : urls) {
+
+        private void discover(String url, int depth) {
+            if (depth >= maxDepth) {
+                return;
+            }
             String host;
             try {
                 host = URLUtils.getHost(url);
             } catch (MalformedURLException e) {
                 errors.put(url, e);
-                count.countDown();
-                continue;
+                return;
             }
-
-            if ((hosts != null && !hosts.contains(host)) || !visited.add(url)) {
-                count.countDown();
-                continue;
+            if (hosts != null && !hosts.contains(host)) {
+                return;
             }
-
-            HostManager manager = amHost.computeIfAbsent(host, k -> new HostManager(host));
-            // :NOTE: right here host can be removed, what leads to leak
-            Runnable downloadJob = () -> {
-                if (excludes.stream().anyMatch(url::contains)) {
-                    count.countDown();
-                    manager.callNext();
+            // excluded pages never reach the host scheduler, so they do not take its slots and tokens
+            if (excludes.stream().anyMatch(url::contains)) {
+                return;
+            }
+            int previous;
+            try {
+                previous = visited.visit(url, depth);
+            } catch (UncheckedIOException e) {
+                errors.put(url, e.getCause());
+                return;
+            } catch (IllegalStateException e) {
+                // the visited store is full
+                errors.put(url, new IOException(e.getMessage(), e));
+                return;
+            }
+            if (depth >= previous) {
+                return;
+            }
+            if (previous != VisitedStore.NOT_VISITED) {
+                List<String> links = visited.getLinks(url);
+                if (links == null) {
+                    if (!inFlight.add(url)) {
+                        // links will be followed with the new depth when they are extracted
+                        return;
+                    }
+                    // links are stored before the page leaves inFlight, so they are seen here if it was just processed
+                    links = visited.getLinks(url);
+                    if (links != null) {
+                        inFlight.remove(url);
+                    }
+                }
+                if (links != null) {
+                    follow(links, depth + 1);
                     return;
                 }
-                Document doc = null;
+            } else {
+                inFlight.add(url);
+            }
+            pending.incrementAndGet();
+            try {
+                addTask(host, () -> download(url));
+            } catch (RejectedExecutionException e) {
+                finish();
+            }
+        }
+
+        private void download(String url) {
+            boolean extracting = false;
+            try {
+                Document doc;
                 try {
                     doc = downloader.download(url);
                     results.add(url);
                 } catch (IOException e) {
                     errors.put(url, e);
-                    count.countDown();
-                } finally {
-                    manager.callNext();
-                }
-                if (doc == null) {
                     return;
                 }
-                Document finalDoc = doc;
-                Runnable extractJob = () -> {
-                    try {
-                        newUrls.addAll(finalDoc.extractLinks());
-                    } catch (IOException e) {
-                        errors.put(url, e);
-                    } finally {
-                        count.countDown();
-                    }
-                };
-                extractors.submit(extractJob);
-            };
-            manager.addTask(downloadJob);
+                pending.incrementAndGet();
+                try {
+                    extractors.submit(() -> extract(url, doc));
+                    extracting = true;
+                } catch (RejectedExecutionException e) {
+                    finish();
+                }
+            } finally {
+                if (!extracting) {
+                    processed(url, List.of());
+                }
+                finish();
+            }
         }
 
-        try {
-            count.await();
-        } catch (InterruptedException ignored) {
-            System.out.println("Current thread was interrupted, aborting bfs");
-            return;
+        private void extract(String url, Document doc) {
+            List<String> links = List.of();
+            try {
+                links = doc.extractLinks();
+            } catch (IOException e) {
+                errors.put(url, e);
+            } finally {
+                try {
+                    processed(url, links);
+                } finally {
+                    finish();
+                }
+            }
+        }
+
+        /**
+         * Follows links of the processed page with the current depth of the page.
+         */
+        private void processed(String url, List<String> links) {
+            visited.putLinks(url, links);
+            inFlight.remove(url);
+            if (!links.isEmpty()) {
+                follow(links, visited.depth(url) + 1);
+            }
+        }
+
+        private void follow(List<String> links, int depth) {
+            for (String link : links) {
+                discover(link, depth);
+            }
         }
-        bfs(newUrls, depth + 1, maxDepth, results, errors, visited, excludes, hosts);
     }
 
     @Override
     public void close() {
+        closed = true;
         downloaders.shutdownNow();
         extractors.shutdownNow();
+        timer.shutdownNow();
+        for (Crawl crawl : crawls) {
+            crawl.abort();
+        }
     }
 
     public static int getArgsOrDefault(String[] args, int id, int defaultValue) {
@@ -0,0 +1,171 @@
+package info.kgeorgiy.ja.shchetinin.crawler.test;
+
+import info.kgeorgiy.ja.shchetinin.crawler.VisitedStore;
+import info.kgeorgiy.ja.shchetinin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WebCrawlerTest {
+    private static final int PAGES = 20_000;
+    private static final int HOSTS = 4_000;
+    private static final int DEPTH = 6;
+
+    private final Random random = new Random(1);
+    private final Map<String, List<String>> graph = new HashMap<>();
+    private final Set<String> failing = new HashSet<>();
+    private final Map<String, AtomicInteger> active = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> downloads = new ConcurrentHashMap<>();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    private final Downloader downloader = url -> {
+        downloads.computeIfAbsent(url, k -> new AtomicInteger()).incrementAndGet();
+        AtomicInteger hostActive = active.computeIfAbsent(host(url), k -> new AtomicInteger());
+        maxActive.accumulateAndGet(hostActive.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(random(url) % 3);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            hostActive.decrementAndGet();
+        }
+        List<String> links = graph.get(url);
+        if (links == null || failing.contains(url)) {
+            throw new IOException("Unable to download " + url);
+        }
+        return () -> links;
+    };
+
+    public WebCrawlerTest() {
+        for (int i = 0; i < PAGES; i++) {
+            List<String> links = new ArrayList<>();
+            for (int k = random.nextInt(12); k > 0; k--) {
+                // some links point to missing pages
+                links.add(url(random.nextInt(PAGES + PAGES / 50)));
+            }
+            graph.put(url(i), links);
+            if (random.nextInt(30) == 0) {
+                failing.add(url(i));
+            }
+        }
+    }
+
+    private static String url(int page) {
+        return "http://h" + page % HOSTS + ".example/p" + page;
+    }
+
+    private static String host(String url) {
+        try {
+            return URLUtils.getHost(url);
+        } catch (MalformedURLException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static int random(String url) {
+        return url.hashCode() & Integer.MAX_VALUE;
+    }
+
+    private Result reference(String url, int depth, Set<String> excludes) {
+        List<String> downloaded = new ArrayList<>();
+        Map<String, IOException> errors = new HashMap<>();
+        Set<String> visited = new HashSet<>(List.of(url));
+        List<String> level = List.of(url);
+        for (int d = 0; d < depth; d++) {
+            List<String> next = new ArrayList<>();
+            for (String page : level) {
+                if (excludes.stream().anyMatch(page::contains)) {
+                    continue;
+                }
+                List<String> links = graph.get(page);
+                if (links == null || failing.contains(page)) {
+                    errors.put(page, new IOException());
+                    continue;
+                }
+                downloaded.add(page);
+                for (String link : links) {
+                    if (visited.add(link)) {
+                        next.add(link);
+                    }
+                }
+            }
+            level = next;
+        }
+        return new Result(downloaded, errors);
+    }
+
+    private void checkCrawl(WebCrawler crawler, int perHost, boolean once) {
+        checkCrawl(crawler, perHost, once, Set.of());
+    }
+
+    private void checkCrawl(WebCrawler crawler, int perHost, boolean once, Set<String> excludes) {
+        for (int start = 0; start < 3; start++) {
+            String url = url(random.nextInt(PAGES));
+            downloads.clear();
+            maxActive.set(0);
+            Result expected = reference(url, DEPTH, excludes);
+            Result actual = crawler.download(url, DEPTH, excludes);
+            assertEquals(new HashSet<>(expected.getDownloaded()), new HashSet<>(actual.getDownloaded()));
+            assertEquals(expected.getDownloaded().size(), actual.getDownloaded().size());
+            assertEquals(expected.getErrors().keySet(), actual.getErrors().keySet());
+            assertTrue(maxActive.get() <= perHost, "Too many concurrent downloads of a host: " + maxActive.get());
+            if (once) {
+                downloads.forEach((page, count) -> assertEquals(1, count.get(), "Downloaded more than once: " + page));
+            }
+        }
+    }
+
+    @Test
+    void perHostLimit() {
+        for (int perHost : new int[]{1, 2, 5}) {
+            try (WebCrawler crawler = new WebCrawler(downloader, 64, 4, perHost)) {
+                checkCrawl(crawler, perHost, true);
+            }
+        }
+    }
+
+    @Test
+    void perHostLimitVirtual() {
+        try (WebCrawler crawler = WebCrawler.virtual(downloader, 256, 4, 2)) {
+            checkCrawl(crawler, 2, true);
+        }
+    }
+
+    @Test
+    void compactVisitedStore() {
+        try (WebCrawler crawler = new WebCrawler(downloader, 64, 4, 3)) {
+            crawler.setVisitedStore(() -> VisitedStore.compact(PAGES, 0.01));
+            // pages found at a smaller depth after they were processed are downloaded again
+            checkCrawl(crawler, 3, false);
+        }
+    }
+
+    @Test
+    void excludes() {
+        Set<String> excludes = Set.of(".example/p1", "h7");
+        try (WebCrawler crawler = new WebCrawler(downloader, 64, 4, 2)) {
+            checkCrawl(crawler, 2, true, excludes);
+            for (String page : downloads.keySet()) {
+                assertTrue(excludes.stream().noneMatch(page::contains), "Excluded page downloaded: " + page);
+            }
+        }
+    }
+
+    @Test
+    void downloadAfterClose() {
+        WebCrawler crawler = new WebCrawler(downloader, 4, 1, 1);
+        crawler.close();
+        assertThrows(IllegalStateException.class, () -> crawler.download(url(0), DEPTH));
+    }
+}
@@ -1,46 +1,43 @@
 package info.kgeorgiy.ja.shchetinin.iterative;
 
-import java.util.List;
-import java.util.function.BiFunction;
-
 /**
- * The AbstractThread class extends Thread and provides functionality for iterating over a list
+ * The AbstractThread class extends Thread and provides functionality for iterating over a range of elements
  * with a specified step size and applying a reduction function.
  *
- * @param <T> the type of elements in the list
  * @param <U> the type of the accumulator
  */
-class AbstractThread<T, U> extends Thread {
-    private final List<T> list;
-    private final int step;
-    private final BiFunction<U, T, U> function;
+class AbstractThread<U> extends Thread {
+    private final int from;
+    private final int to;
+    private final SliceReducer<U> reducer;
     private U accumulator;
+    private long nanos;
 
     /**
-     * Constructs a new AbstractThread object with the specified list, step size, initial accumulator value,
-     * and reduce function.
+     * Constructs a new AbstractThread object with the specified range of elements,
+     * initial accumulator value, and reducer of the range.
      *
-     * @param list     the list of elements to iterate over
-     * @param step     the step size indicating how many elements to skip in each iteration
+     * @param from     the first index, inclusive
+     * @param to       the last index, exclusive
      * @param identity the initial value of the accumulator
-     * @param function the function to reduce
+     * @param reducer  the reducer of the range
      */
-    public AbstractThread(List<T> list, int step, U identity, BiFunction<U, T, U> function) {
-        this.list = list;
-        this.step = step;
-        this.function = function;
+    public AbstractThread(int from, int to, U identity, SliceReducer<U> reducer) {
+        this.from = from;
+        this.to = to;
+        this.reducer = reducer;
         accumulator = identity;
     }
 
     /**
-     * Executes the thread, iterating over the list with the specified step size and applying the function
+     * Executes the thread, iterating over the range with the specified step size and applying the function
      * on each element to update the accumulator.
      */
     @Override
     public void run() {
-        for (int i = 0; i < list.size(); i += step) {
-            accumulator = function.apply(accumulator, list.get(i));
-        }
+        long started = System.nanoTime();
+        accumulator = reducer.reduce(from, to, accumulator);
+        nanos = System.nanoTime() - started;
     }
 
     /**
@@ -51,4 +48,13 @@ class AbstractThread<T, U> extends Thread {
     public U getAccumulator() {
         return accumulator;
     }
+
+    /**
+     * Gets time of the iteration after the thread has finished executing.
+     *
+     * @return time of the iteration in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
 }
@@ -0,0 +1,115 @@
+package info.kgeorgiy.ja.shchetinin.iterative;
+
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * The Elements class gives constant time access to elements of a list by index.
+ * <p>
+ * {@link RandomAccess} lists are read in place, other lists, such as {@link java.util.LinkedList},
+ * are copied to an array once, so strided iteration is linear for every list.
+ *
+ * @param <T> the type of elements
+ */
+final class Elements<T> {
+    /**
+     * Function updating the accumulator with an element and its index.
+     *
+     * @param <U> the type of the accumulator
+     * @param <T> the type of elements
+     */
+    @FunctionalInterface
+    interface IndexedFunction<U, T> {
+        U apply(U accumulator, int index, T element);
+    }
+
+    private final List<T> list;
+    private final Object[] array;
+
+    private Elements(List<T> list, Object[] array) {
+        this.list = list;
+        this.array = array;
+    }
+
+    /**
+     * Returns elements of the list, copying them to an array if the list is not {@link RandomAccess}.
+     *
+     * @param list the list of elements
+     * @param <T>  the type of elements
+     * @return elements of the list
+     */
+    static <T> Elements<T> of(List<T> list) {
+        return list instanceof RandomAccess ? new Elements<>(list, null) : new Elements<>(null, list.toArray());
+    }
+
+    /**
+     * Returns number of elements.
+     *
+     * @return number of elements
+     */
+    int size() {
+        return array != null ? array.length : list.size();
+    }
+
+    /**
+     * Returns element with the index.
+     *
+     * @param index index of the element
+     * @return element with the index
+     */
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        return array != null ? (T) array[index] : list.get(index);
+    }
+
+    /**
+     * Iterates over elements with indices {@code from, from + step, ...} below {@code to}
+     * and applies the function on each element to update the accumulator.
+     *
+     * @param from        the first index, inclusive
+     * @param to          the last index, exclusive
+     * @param step        the step size indicating how many elements to skip in each iteration
+     * @param accumulator the initial value of the accumulator
+     * @param function    the function to reduce
+     * @param stop        the condition on the accumulator to stop iteration early,
+     *                    checked before each element
+     * @param <U>         the type of the accumulator
+     * @return the final value of the accumulator
+     */
+    @SuppressWarnings("unchecked")
+    <U> U reduce(int from, int to, int step, U accumulator, BiFunction<U, ? super T, U> function, Predicate<? super U> stop) {
+        if (array != null) {
+            for (int i = from; i < to && !stop.test(accumulator); i += step) {
+                accumulator = function.apply(accumulator, (T) array[i]);
+            }
+        } else {
+            for (int i = from; i < to && !stop.test(accumulator); i += step) {
+                accumulator = function.apply(accumulator, list.get(i));
+            }
+        }
+        return accumulator;
+    }
+
+    /**
+     * Iterates over elements with indices {@code from, from + step, ...} below {@code to}
+     * and applies the function on each element and its index to update the accumulator.
+     *
+     * @param from        the first index, inclusive
+     * @param to          the last index, exclusive
+     * @param step        the step size indicating how many elements to skip in each iteration
+     * @param accumulator the initial value of the accumulator
+     * @param function    the function to reduce
+     * @param stop        the condition on the accumulator to stop iteration early,
+     *                    checked before each element
+     * @param <U>         the type of the accumulator
+     * @return the final value of the accumulator
+     */
+    <U> U reduceIndexed(int from, int to, int step, U accumulator, IndexedFunction<U, ? super T> function, Predicate<? super U> stop) {
+        for (int i = from; i < to && !stop.test(accumulator); i += step) {
+            accumulator = function.apply(accumulator, i, get(i));
+        }
+        return accumulator;
+    }
+}
@@ -1,41 +1,178 @@
 package info.kgeorgiy.ja.shchetinin.iterative;
 
 import info.kgeorgiy.java.advanced.iterative.AdvancedIP;
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.*;
 
 public class IterativeParallelism implements AdvancedIP {
 
+    /**
+     * Number of tasks per requested thread the fork/join backend splits a call into.
+     */
+    private static final int TASKS_PER_THREAD = 8;
+
+    private final ParallelMapper mapper;
+    private final ForkJoinPool pool;
+    private volatile ParallelismListener listener;
+
+    /**
+     * Constructs a new IterativeParallelism that starts new threads for every call.
+     */
+    public IterativeParallelism() {
+        this(null, null);
+    }
+
+    /**
+     * Constructs a new IterativeParallelism that runs slices of every call on the mapper.
+     * The mapper is not closed by this class.
+     *
+     * @param mapper the mapper to run slices on, {@code null} to start new threads for every call
+     */
+    public IterativeParallelism(ParallelMapper mapper) {
+        this(mapper, null);
+    }
+
+    /**
+     * Constructs a new IterativeParallelism that runs every call on the fork/join pool.
+     * <p>
+     * A call is split recursively into tasks of about {@code size / (threads * 8)} visited elements,
+     * idle workers of the pool steal tasks of busy ones, so slow elements do not stall the whole call.
+     * The number of threads working on a call is limited by the pool, not by the {@code threads} argument.
+     * The pool is not shut down by this class.
+     *
+     * @param pool the pool to run calls on
+     */
+    public IterativeParallelism(ForkJoinPool pool) {
+        this(null, Objects.requireNonNull(pool));
+    }
+
+    private IterativeParallelism(ParallelMapper mapper, ForkJoinPool pool) {
+        this.mapper = mapper;
+        this.pool = pool;
+    }
+
+    /**
+     * Sets listener of timings of calls.
+     *
+     * @param listener listener, {@code null} to stop reporting
+     */
+    public void setListener(ParallelismListener listener) {
+        this.listener = listener;
+    }
+
     private <T, U> U reduce0(int amThreads, List<T> values, Supplier<U> identity, BiFunction<U, T, U> function, BinaryOperator<U> reduceReduce, int step) throws InterruptedException {
-        // :NOTE: Функция слишком много чего делает, стоит упростить
+        return reduce0(amThreads, values, identity, function, reduceReduce, step, u -> false);
+    }
+
+    private <T, U> U reduce0(int amThreads, List<T> values, Supplier<U> identity, BiFunction<U, T, U> function, BinaryOperator<U> reduceReduce, int step, Predicate<? super U> stop) throws InterruptedException {
         if (values.isEmpty() || amThreads < 1 || step < 1) {
             // :NOTE: maybe throw?
             return identity.get();
         }
-        int up = values.size() / amThreads;
-        List<AbstractThread<T, U>> threads = new ArrayList<>();
+        Elements<T> elements = Elements.of(values);
+        return reduceSlices(amThreads, elements.size(), step, identity,
+                (from, to, accumulator) -> elements.reduce(from, to, step, accumulator, function, stop), reduceReduce);
+    }
+
+    /**
+     * Splits visited indices of {@code size} elements between threads and reduces every slice with the reducer.
+     */
+    private <U> U reduceSlices(int amThreads, int size, int step, Supplier<U> identity, SliceReducer<U> reducer, BinaryOperator<U> reduceReduce) throws InterruptedException {
+        ParallelismListener listener = this.listener;
+        long started = listener == null ? 0 : System.nanoTime();
+        Queue<Long> durations = listener == null ? null : new ConcurrentLinkedQueue<>();
+        U result;
+        if (pool != null) {
+            result = forkJoin(amThreads, size, step, identity, reducer, reduceReduce, durations);
+        } else {
+            List<Slice> slices = split(amThreads, size, step);
+            List<U> accumulators = mapper == null
+                    ? runThreads(slices, identity, reducer, durations)
+                    : mapper.map(slice -> {
+                        long sliceStarted = durations == null ? 0 : System.nanoTime();
+                        U accumulator = reducer.reduce(slice.from(), slice.to(), identity.get());
+                        if (durations != null) {
+                            durations.add(System.nanoTime() - sliceStarted);
+                        }
+                        return accumulator;
+                    }, slices);
+            result = accumulators.get(0);
+            for (int i = 1; i < accumulators.size(); ++i) {
+                result = reduceReduce.apply(result, accumulators.get(i));
+            }
+        }
+        if (listener != null) {
+            listener.callFinished(System.nanoTime() - started, durations.stream().mapToLong(Long::longValue).toArray());
+        }
+        return result;
+    }
+
+    private <U> U forkJoin(int amThreads, int size, int step, Supplier<U> identity, SliceReducer<U> reducer, BinaryOperator<U> reduceReduce, Queue<Long> durations) throws InterruptedException {
+        int visited = ReduceTask.visited(size, step);
+        int grain = Math.max(1, visited / (amThreads * TASKS_PER_THREAD));
+        ForkJoinTask<U> task = pool.submit(new ReduceTask<>(size, step, 0, visited, grain, identity, reducer, reduceReduce, durations));
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Range of indices {@code [from, to)} reduced by one thread, {@code from} is a multiple of the step.
+     */
+    private record Slice(int from, int to) {
+    }
+
+    /**
+     * Splits visited indices {@code 0, step, 2 * step, ...} below {@code size} into contiguous slices,
+     * numbers of visited indices in slices differ by at most one. Does not create empty slices.
+     */
+    private static List<Slice> split(int amThreads, int size, int step) {
+        int visited = ReduceTask.visited(size, step);
+        int slicesCount = Math.min(amThreads, visited);
+        int up = visited / slicesCount;
+        List<Slice> slices = new ArrayList<>(slicesCount);
         int left = 0;
-        for (int i = 0; i < amThreads; i++) {
-            int right = left + up;
-            if (i < values.size() % amThreads) {
-                right++;
-            }
-            right = Math.min(values.size(), right);
-            if (left % step != 0) {
-                left += (step - left % step);
-            }
-            left = Math.min(right, left);
-            // :NOTE: Красиво
-            threads.add(new AbstractThread<>(values.subList(left, right), step, identity.get(), function));
-            threads.get(i).start();
+        for (int i = 0; i < slicesCount; i++) {
+            int right = left + up + (i < visited % slicesCount ? 1 : 0);
+            slices.add(new Slice(left * step, (int) Math.min((long) right * step, size)));
             left = right;
         }
+        return slices;
+    }
+
+    private static <U> List<U> runThreads(List<Slice> slices, Supplier<U> identity, SliceReducer<U> reducer, Queue<Long> durations) throws InterruptedException {
+        List<AbstractThread<U>> threads = new ArrayList<>();
+        for (Slice slice : slices) {
+            AbstractThread<U> thread = new AbstractThread<>(slice.from(), slice.to(), identity.get(), reducer);
+            threads.add(thread);
+            thread.start();
+        }
         List<U> accumulators = new ArrayList<>();
-        for (int i = 0; i < amThreads; ++i) {
-            AbstractThread<T, U> thread = threads.get(i);
+        for (AbstractThread<U> thread : threads) {
             try {
                 thread.join();
             } catch (InterruptedException e) {
@@ -47,18 +184,21 @@ public class IterativeParallelism implements AdvancedIP {
                 throw new InterruptedException("Error while join threads");
             }
             accumulators.add(thread.getAccumulator());
+            if (durations != null) {
+                durations.add(thread.getNanos());
+            }
         }
-        U result = accumulators.get(0);
-        for (int i = 1; i < accumulators.size(); ++i) {
-            result = reduceReduce.apply(result, accumulators.get(i));
-        }
-        return result;
+        return accumulators;
     }
 
     private <T, U> U reduce1(int amThreads, List<T> values, U identity, BiFunction<U, T, U> function, BinaryOperator<U> reduceReduce, int step) throws InterruptedException {
         return reduce0(amThreads, values, () -> identity, function, reduceReduce, step);
     }
 
+    private <T, U> U reduce1(int amThreads, List<T> values, U identity, BiFunction<U, T, U> function, BinaryOperator<U> reduceReduce, int step, Predicate<? super U> stop) throws InterruptedException {
+        return reduce0(amThreads, values, () -> identity, function, reduceReduce, step, stop);
+    }
+
     @Override
     public <T> T reduce(int threads, List<T> values, T identity, BinaryOperator<T> operator, int step) throws InterruptedException {
         return reduce1(threads, values, identity, operator, operator, step);
@@ -136,25 +276,392 @@ public class IterativeParallelism implements AdvancedIP {
         }, step);
     }
 
+    /**
+     * Returns whether all elements satisfy the predicate.
+     * Workers stop as soon as some of them finds an element that does not satisfy it.
+     */
     @Override
     public <T> boolean all(int threads, List<? extends T> values, Predicate<? super T> predicate, int step) throws InterruptedException {
-        // :NOTE: !any(predicate.negate())
-        return reduce1(threads, values, Boolean.TRUE, (u, t1) -> u & predicate.test(t1), Boolean::logicalAnd, step);
+        return !any(threads, values, predicate.negate(), step);
     }
 
+    /**
+     * Returns whether some element satisfies the predicate.
+     * Workers stop as soon as some of them finds such an element.
+     */
     @Override
     public <T> boolean any(int threads, List<? extends T> values, Predicate<? super T> predicate, int step) throws InterruptedException {
-        return reduce1(threads, values, Boolean.FALSE, (u, t1) -> u | predicate.test(t1), Boolean::logicalOr, step);
+        AtomicBoolean found = new AtomicBoolean();
+        return reduce1(threads, values, Boolean.FALSE, (u, t1) -> {
+            if (!u && predicate.test(t1)) {
+                found.set(true);
+                return Boolean.TRUE;
+            }
+            return u;
+        }, Boolean::logicalOr, step, u -> found.get());
     }
 
+    /**
+     * Returns some element satisfying the predicate.
+     * Workers stop as soon as some of them finds such an element.
+     *
+     * @param threads   number of concurrent threads
+     * @param values    values to test
+     * @param predicate test predicate
+     * @param step      step size
+     * @param <T>       value type
+     * @return some matching element, empty if there is none or the element is {@code null}
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T> Optional<T> findAny(int threads, List<? extends T> values, Predicate<? super T> predicate, int step) throws InterruptedException {
+        return find(threads, values, predicate, step, false);
+    }
+
+    /**
+     * Returns the first element satisfying the predicate.
+     * A worker stops when it finds a matching element or passes one found by another worker,
+     * so the time spent is proportional to the position of the first match.
+     *
+     * @param threads   number of concurrent threads
+     * @param values    values to test
+     * @param predicate test predicate
+     * @param step      step size
+     * @param <T>       value type
+     * @return the first matching element, empty if there is none or the element is {@code null}
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T> Optional<T> findFirst(int threads, List<? extends T> values, Predicate<? super T> predicate, int step) throws InterruptedException {
+        return find(threads, values, predicate, step, true);
+    }
+
+    /**
+     * Search state of one slice: the last visited index and the index of the found element, {@code -1} if none.
+     */
+    private static class Found {
+        int last = -1;
+        int index = -1;
+    }
+
+    private <T> Optional<T> find(int threads, List<? extends T> values, Predicate<? super T> predicate, int step, boolean first) throws InterruptedException {
+        if (values.isEmpty() || threads < 1 || step < 1) {
+            return Optional.empty();
+        }
+        Elements<? extends T> elements = Elements.of(values);
+        // index of the first element found so far
+        AtomicInteger bound = new AtomicInteger(Integer.MAX_VALUE);
+        Elements.IndexedFunction<Found, T> test = (f, i, element) -> {
+            f.last = i;
+            if (predicate.test(element)) {
+                f.index = i;
+                bound.accumulateAndGet(i, Math::min);
+            }
+            return f;
+        };
+        Predicate<Found> stop = first
+                ? f -> f.index >= 0 || f.last >= bound.get()
+                : f -> bound.get() != Integer.MAX_VALUE;
+        Found found = reduceSlices(threads, elements.size(), step, Found::new,
+                (from, to, f) -> elements.reduceIndexed(from, to, step, f, test, stop),
+                (f1, f2) -> f1.index >= 0 ? f1 : f2);
+        return found.index >= 0 ? Optional.ofNullable(elements.get(found.index)) : Optional.empty();
+    }
+
+    /**
+     * Counts elements satisfying the predicate. Every worker counts into a primitive field.
+     */
     @Override
     public <T> int count(int threads, List<? extends T> values, Predicate<? super T> predicate, int step) throws InterruptedException {
-        return reduce1(threads, values, 0, (u, t1) -> {
+        return reduce0(threads, values, IntHolder::new, (u, t1) -> {
             if (predicate.test(t1)) {
-                u++;
+                u.value++;
             }
             return u;
-        }, Integer::sum, step);
+        }, IntHolder::add, step).value;
+    }
+
+    /**
+     * Sums {@code int} values of elements with overflow, like {@code +} does.
+     * Every worker sums into a primitive field, nothing is boxed.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to sum
+     * @param f       value of an element
+     * @param step    step size
+     * @param <T>     value type
+     * @return sum of values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T> int sumInt(int threads, List<? extends T> values, ToIntFunction<? super T> f, int step) throws InterruptedException {
+        return reduce0(threads, values, IntHolder::new, (u, t) -> {
+            u.value += f.applyAsInt(t);
+            return u;
+        }, IntHolder::add, step).value;
+    }
+
+    /**
+     * Sums {@code long} values of elements with overflow, like {@code +} does.
+     * Every worker sums into a primitive field, nothing is boxed.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to sum
+     * @param f       value of an element
+     * @param step    step size
+     * @param <T>     value type
+     * @return sum of values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T> long sumLong(int threads, List<? extends T> values, ToLongFunction<? super T> f, int step) throws InterruptedException {
+        return reduce0(threads, values, LongHolder::new, (u, t) -> {
+            u.value += f.applyAsLong(t);
+            return u;
+        }, LongHolder::add, step).value;
+    }
+
+    /**
+     * Sums {@code double} values of elements. Every worker sums into a primitive field, nothing is boxed.
+     * Partial sums are added in order of workers, so rounding may differ for different numbers of threads.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to sum
+     * @param f       value of an element
+     * @param step    step size
+     * @param <T>     value type
+     * @return sum of values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T> double sumDouble(int threads, List<? extends T> values, ToDoubleFunction<? super T> f, int step) throws InterruptedException {
+        return reduce0(threads, values, DoubleHolder::new, (u, t) -> {
+            u.value += f.applyAsDouble(t);
+            return u;
+        }, DoubleHolder::add, step).value;
+    }
+
+    /**
+     * Maps elements to {@code int} and reduces them with the operator.
+     * Like {@link #mapReduce}, but every worker accumulates into a primitive field, nothing is boxed.
+     *
+     * @param threads  number of concurrent threads
+     * @param values   values to reduce
+     * @param lift     mapping function
+     * @param identity neutral element of the operator
+     * @param operator associative reduction operator
+     * @param step     step size
+     * @param <T>      value type
+     * @return reduced value
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T> int mapReduceInt(int threads, List<? extends T> values, ToIntFunction<? super T> lift, int identity, IntBinaryOperator operator, int step) throws InterruptedException {
+        return reduce0(threads, values, () -> new IntHolder(identity), (u, t) -> {
+            u.value = operator.applyAsInt(u.value, lift.applyAsInt(t));
+            return u;
+        }, (u1, u2) -> {
+            u1.value = operator.applyAsInt(u1.value, u2.value);
+            return u1;
+        }, step).value;
+    }
+
+    /**
+     * Returns a lazy pipeline over the elements. Consecutive stages of the pipeline are fused
+     * and evaluated by a single parallel reduction when a terminal operation is called.
+     *
+     * @param threads number of concurrent threads
+     * @param values  source values
+     * @param step    step size
+     * @param <T>     value type
+     * @return pipeline producing strided values
+     */
+    public <T> Pipeline<T> pipeline(int threads, List<? extends T> values, int step) {
+        return new Pipeline<>() {
+            @Override
+            <U> U evaluate(Supplier<U> identity, BiFunction<U, T, U> function, BinaryOperator<U> combiner,
+                           Predicate<? super U> stop) throws InterruptedException {
+                return reduce0(threads, values, identity, function::apply, combiner, step, stop);
+            }
+        };
+    }
+
+    /**
+     * Sorts elements with a parallel merge sort. The sort is stable.
+     * <p>
+     * Every worker sorts its slice, then sorted slices are merged in pairs in parallel,
+     * so only the last merge runs on a single thread.
+     *
+     * @param threads    number of concurrent threads
+     * @param values     values to sort
+     * @param comparator value comparator
+     * @param step       step size
+     * @param <T>        value type
+     * @return new list of sorted values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T> List<T> sort(int threads, List<? extends T> values, Comparator<? super T> comparator, int step) throws InterruptedException {
+        List<List<T>> runs = parallelMap(this.<T>gather(threads, values, step), run -> {
+            run.sort(comparator);
+            return run;
+        });
+        while (runs.size() > 1) {
+            List<List<List<T>>> pairs = new ArrayList<>();
+            for (int i = 0; i < runs.size(); i += 2) {
+                pairs.add(runs.subList(i, Math.min(i + 2, runs.size())));
+            }
+            runs = parallelMap(pairs, pair -> pair.size() == 1 ? pair.get(0) : merge(pair.get(0), pair.get(1), comparator));
+        }
+        return runs.get(0);
+    }
+
+    /**
+     * Computes inclusive prefix scan: the {@code i}-th result is {@code v[0] op ... op v[i]}.
+     *
+     * @param threads  number of concurrent threads
+     * @param values   values to scan
+     * @param identity neutral element of the operator
+     * @param operator associative operator
+     * @param step     step size
+     * @param <T>      value type
+     * @return new list of prefix values, of the same size as the strided input
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T> List<T> inclusiveScan(int threads, List<? extends T> values, T identity, BinaryOperator<T> operator, int step) throws InterruptedException {
+        return scan(threads, values, identity, operator, step, true);
+    }
+
+    /**
+     * Computes exclusive prefix scan: the {@code i}-th result is {@code identity op v[0] op ... op v[i - 1]}.
+     *
+     * @param threads  number of concurrent threads
+     * @param values   values to scan
+     * @param identity neutral element of the operator
+     * @param operator associative operator
+     * @param step     step size
+     * @param <T>      value type
+     * @return new list of prefix values, of the same size as the strided input
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T> List<T> exclusiveScan(int threads, List<? extends T> values, T identity, BinaryOperator<T> operator, int step) throws InterruptedException {
+        return scan(threads, values, identity, operator, step, false);
+    }
+
+    /**
+     * Scans in three passes: workers reduce their slices, the caller scans totals of slices,
+     * then workers scan their slices starting from the total of all previous slices.
+     */
+    private <T> List<T> scan(int threads, List<? extends T> values, T identity, BinaryOperator<T> operator, int step, boolean inclusive) throws InterruptedException {
+        List<List<T>> runs = this.<T>gather(threads, values, step);
+        List<T> totals = parallelMap(runs, run -> {
+            T total = identity;
+            for (T t : run) {
+                total = operator.apply(total, t);
+            }
+            return total;
+        });
+        List<Integer> indices = new ArrayList<>(runs.size());
+        List<T> offsets = new ArrayList<>(runs.size());
+        T offset = identity;
+        for (int i = 0; i < runs.size(); i++) {
+            indices.add(i);
+            offsets.add(offset);
+            offset = operator.apply(offset, totals.get(i));
+        }
+        List<List<T>> scanned = parallelMap(indices, i -> {
+            List<T> run = runs.get(i);
+            T prefix = offsets.get(i);
+            for (int j = 0; j < run.size(); j++) {
+                T next = operator.apply(prefix, run.get(j));
+                run.set(j, inclusive ? next : prefix);
+                prefix = next;
+            }
+            return run;
+        });
+        List<T> result = new ArrayList<>(scanned.stream().mapToInt(List::size).sum());
+        for (List<T> run : scanned) {
+            result.addAll(run);
+        }
+        return result;
+    }
+
+    /**
+     * Copies strided elements to lists, one list per slice reduced by a worker, in order.
+     */
+    private <T> List<List<T>> gather(int threads, List<? extends T> values, int step) throws InterruptedException {
+        return reduce0(threads, values, () -> {
+            List<List<T>> runs = new ArrayList<>();
+            runs.add(new ArrayList<>());
+            return runs;
+        }, (runs, t) -> {
+            runs.get(runs.size() - 1).add(t);
+            return runs;
+        }, (runs1, runs2) -> {
+            runs1.addAll(runs2);
+            return runs1;
+        }, step);
+    }
+
+    /**
+     * Applies the function to every task on its own worker.
+     */
+    private <X, R> List<R> parallelMap(List<X> tasks, Function<X, R> f) throws InterruptedException {
+        return reduce0(tasks.size(), tasks, ArrayList::new, (rs, x) -> {
+            rs.add(f.apply(x));
+            return rs;
+        }, (rs1, rs2) -> {
+            rs1.addAll(rs2);
+            return rs1;
+        }, 1);
+    }
+
+    private static <T> List<T> merge(List<T> left, List<T> right, Comparator<? super T> comparator) {
+        List<T> result = new ArrayList<>(left.size() + right.size());
+        int i = 0;
+        int j = 0;
+        while (i < left.size() && j < right.size()) {
+            result.add(comparator.compare(right.get(j), left.get(i)) < 0 ? right.get(j++) : left.get(i++));
+        }
+        result.addAll(left.subList(i, left.size()));
+        result.addAll(right.subList(j, right.size()));
+        return result;
+    }
+
+    /**
+     * Mutable accumulator of one worker for {@code int} reductions.
+     */
+    static class IntHolder {
+        int value;
+
+        IntHolder() {
+        }
+
+        IntHolder(int value) {
+            this.value = value;
+        }
+
+        IntHolder add(IntHolder other) {
+            value += other.value;
+            return this;
+        }
+    }
+
+    /**
+     * Mutable accumulator of one worker for {@code long} reductions.
+     */
+    private static class LongHolder {
+        long value;
+
+        LongHolder add(LongHolder other) {
+            value += other.value;
+            return this;
+        }
+    }
+
+    /**
+     * Mutable accumulator of one worker for {@code double} reductions.
+     */
+    private static class DoubleHolder {
+        double value;
+
+        DoubleHolder add(DoubleHolder other) {
+            value += other.value;
+            return this;
+        }
     }
 
 }
@@ -0,0 +1,19 @@
+package info.kgeorgiy.ja.shchetinin.iterative;
+
+/**
+ * Receives timings of {@link IterativeParallelism} calls.
+ * Methods are called from threads calling {@code IterativeParallelism}, concurrently if the instance is shared,
+ * so implementations should be thread-safe and fast.
+ */
+public interface ParallelismListener {
+    /**
+     * Called after a parallel call finished successfully.
+     * <p>
+     * Tasks are slices reduced by threads or mapper tasks, or leaf tasks for the fork/join backend.
+     * Wall time includes starting and joining threads and combining results, which task times do not.
+     *
+     * @param wallNanos time of the call
+     * @param taskNanos times of tasks of the call
+     */
+    void callFinished(long wallNanos, long[] taskNanos);
+}
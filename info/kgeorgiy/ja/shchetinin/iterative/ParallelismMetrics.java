@@ -0,0 +1,213 @@
+package info.kgeorgiy.ja.shchetinin.iterative;
+
+import info.kgeorgiy.ja.shchetinin.mapper.MapperListener;
+import info.kgeorgiy.ja.shchetinin.metrics.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated timings of {@link IterativeParallelism} and {@link info.kgeorgiy.ja.shchetinin.mapper.ParallelMapperImpl} calls:
+ * counters and histograms of call wall time, task time, mapper queue wait and task time with power of two buckets in microseconds,
+ * and histogram of imbalance, the ratio of the slowest task time to the mean task time of a call.
+ * <p>
+ * One instance may listen to both an {@code IterativeParallelism} and the mapper it runs on.
+ * Metrics may be exported via JMX as {@value #OBJECT_NAME}. Metrics are thread-safe.
+ */
+public class ParallelismMetrics implements ParallelismListener, MapperListener, ParallelismMetricsMXBean, AutoCloseable {
+    public static final String OBJECT_NAME = "info.kgeorgiy.ja.shchetinin.iterative:type=ParallelismMetrics";
+
+    private static final double[] IMBALANCE_BUCKETS = {1.05, 1.1, 1.25, 1.5, 2, 4, 8};
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder tasks = new LongAdder();
+    private final LongAdder wallNanos = new LongAdder();
+    private final LongAdder taskNanos = new LongAdder();
+    private final LongAdder overheadNanos = new LongAdder();
+    private final LongAdder mapperCalls = new LongAdder();
+    private final LongAdder mapperTasks = new LongAdder();
+    private final LatencyHistogram wall = new LatencyHistogram();
+    private final LatencyHistogram task = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram mapperTask = new LatencyHistogram();
+    private final LatencyHistogram mapperWall = new LatencyHistogram();
+    private final LongAdder[] imbalance = new LongAdder[IMBALANCE_BUCKETS.length + 1];
+    private ObjectName registered;
+
+    public ParallelismMetrics() {
+        for (int i = 0; i < imbalance.length; i++) {
+            imbalance[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns ratio of the maximal task time to the mean task time.
+     *
+     * @param taskNanos times of tasks
+     * @return imbalance, {@code 1} if there are no tasks or they took no time
+     */
+    public static double imbalance(long[] taskNanos) {
+        long max = 0;
+        long total = 0;
+        for (long nanos : taskNanos) {
+            max = Math.max(max, nanos);
+            total += nanos;
+        }
+        return total == 0 ? 1 : (double) max * taskNanos.length / total;
+    }
+
+    @Override
+    public void callFinished(long wallNanos, long[] taskNanos) {
+        calls.increment();
+        tasks.add(taskNanos.length);
+        this.wallNanos.add(wallNanos);
+        wall.record(wallNanos);
+        long max = 0;
+        for (long nanos : taskNanos) {
+            this.taskNanos.add(nanos);
+            task.record(nanos);
+            max = Math.max(max, nanos);
+        }
+        overheadNanos.add(Math.max(0, wallNanos - max));
+        double ratio = imbalance(taskNanos);
+        int bucket = 0;
+        while (bucket < IMBALANCE_BUCKETS.length && ratio >= IMBALANCE_BUCKETS[bucket]) {
+            bucket++;
+        }
+        imbalance[bucket].increment();
+    }
+
+    @Override
+    public void taskFinished(long queueNanos, long runNanos) {
+        mapperTasks.increment();
+        queueWait.record(queueNanos);
+        mapperTask.record(runNanos);
+    }
+
+    @Override
+    public void mapFinished(int tasks, long wallNanos) {
+        mapperCalls.increment();
+        mapperWall.record(wallNanos);
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server.
+     *
+     * @throws JMException if registration failed
+     */
+    public synchronized void registerMBean() throws JMException {
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        registered = name;
+    }
+
+    /**
+     * Unregisters the MBean.
+     */
+    @Override
+    public synchronized void close() {
+        if (registered != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+            } catch (JMException ignored) {
+            }
+            registered = null;
+        }
+    }
+
+    /**
+     * Returns summary line of the metrics.
+     *
+     * @return summary line
+     */
+    @Override
+    public String toString() {
+        long calls = getCalls();
+        return String.format(Locale.ROOT,
+                "parallelism calls=%d tasks=%d wall_ms=%d task_ms=%d overhead_ms=%d mapper_calls=%d mapper_tasks=%d",
+                calls, getTasks(), getWallMillis(), getTaskMillis(), getOverheadMillis(), getMapperCalls(), getMapperTasks());
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getTasks() {
+        return tasks.sum();
+    }
+
+    @Override
+    public long getWallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(wallNanos.sum());
+    }
+
+    @Override
+    public long getTaskMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(taskNanos.sum());
+    }
+
+    @Override
+    public long getOverheadMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(overheadNanos.sum());
+    }
+
+    @Override
+    public long getMapperCalls() {
+        return mapperCalls.sum();
+    }
+
+    @Override
+    public long getMapperTasks() {
+        return mapperTasks.sum();
+    }
+
+    @Override
+    public long[] getLatencyBucketsMicros() {
+        return LatencyHistogram.bucketsMicros();
+    }
+
+    @Override
+    public long[] getWallHistogram() {
+        return wall.counts();
+    }
+
+    @Override
+    public long[] getTaskHistogram() {
+        return task.counts();
+    }
+
+    @Override
+    public long[] getQueueWaitHistogram() {
+        return queueWait.counts();
+    }
+
+    @Override
+    public long[] getMapperTaskHistogram() {
+        return mapperTask.counts();
+    }
+
+    @Override
+    public long[] getMapperWallHistogram() {
+        return mapperWall.counts();
+    }
+
+    @Override
+    public double[] getImbalanceBuckets() {
+        return IMBALANCE_BUCKETS.clone();
+    }
+
+    @Override
+    public long[] getImbalanceHistogram() {
+        long[] counts = new long[imbalance.length];
+        for (int i = 0; i < imbalance.length; i++) {
+            counts[i] = imbalance[i].sum();
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,51 @@
+package info.kgeorgiy.ja.shchetinin.iterative;
+
+/**
+ * JMX view of {@link ParallelismMetrics}.
+ */
+public interface ParallelismMetricsMXBean {
+    long getCalls();
+
+    long getTasks();
+
+    long getWallMillis();
+
+    long getTaskMillis();
+
+    /**
+     * Returns total time of calls not covered by their slowest task: thread start, join and combining.
+     *
+     * @return overhead in milliseconds
+     */
+    long getOverheadMillis();
+
+    long getMapperCalls();
+
+    long getMapperTasks();
+
+    /**
+     * Returns exclusive upper bounds of latency buckets, the last bucket is unbounded.
+     *
+     * @return upper bounds in microseconds
+     */
+    long[] getLatencyBucketsMicros();
+
+    long[] getWallHistogram();
+
+    long[] getTaskHistogram();
+
+    long[] getQueueWaitHistogram();
+
+    long[] getMapperTaskHistogram();
+
+    long[] getMapperWallHistogram();
+
+    /**
+     * Returns exclusive upper bounds of imbalance buckets, the last bucket is unbounded.
+     *
+     * @return upper bounds of the ratio of the slowest task time to the mean task time
+     */
+    double[] getImbalanceBuckets();
+
+    long[] getImbalanceHistogram();
+}
@@ -0,0 +1,145 @@
+package info.kgeorgiy.ja.shchetinin.iterative;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * The Pipeline class is a lazy sequence of stateless stages over a list, evaluated by {@link IterativeParallelism}.
+ * <p>
+ * {@link #filter} and {@link #map} only describe a stage. A terminal operation fuses all stages
+ * into a single reduction function, so every worker passes each of its elements through the whole
+ * chain in one pass, and only the terminal operation allocates its result.
+ * A pipeline may be evaluated several times, each terminal operation runs all stages again.
+ *
+ * @param <T> the type of elements produced by the pipeline
+ * @see IterativeParallelism#pipeline(int, List, int)
+ */
+public abstract class Pipeline<T> {
+    Pipeline() {
+    }
+
+    /**
+     * Reduces elements produced by the pipeline in parallel.
+     *
+     * @param identity the supplier of initial accumulator values, one per worker
+     * @param function the function to reduce
+     * @param combiner the function to combine accumulators of workers
+     * @param stop     the condition on the accumulator to stop iteration early
+     * @param <U>      the type of the accumulator
+     * @return combined accumulator
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    abstract <U> U evaluate(Supplier<U> identity, BiFunction<U, T, U> function, BinaryOperator<U> combiner,
+                            Predicate<? super U> stop) throws InterruptedException;
+
+    /**
+     * Returns pipeline of elements that satisfy the predicate.
+     *
+     * @param predicate filter predicate
+     * @return new pipeline
+     */
+    public Pipeline<T> filter(Predicate<? super T> predicate) {
+        Pipeline<T> upstream = this;
+        return new Pipeline<>() {
+            @Override
+            <U> U evaluate(Supplier<U> identity, BiFunction<U, T, U> function, BinaryOperator<U> combiner,
+                           Predicate<? super U> stop) throws InterruptedException {
+                return upstream.evaluate(identity, (u, t) -> predicate.test(t) ? function.apply(u, t) : u, combiner, stop);
+            }
+        };
+    }
+
+    /**
+     * Returns pipeline of results of the function applied to elements.
+     *
+     * @param f   mapping function
+     * @param <R> the type of results
+     * @return new pipeline
+     */
+    public <R> Pipeline<R> map(Function<? super T, ? extends R> f) {
+        Pipeline<T> upstream = this;
+        return new Pipeline<>() {
+            @Override
+            <U> U evaluate(Supplier<U> identity, BiFunction<U, R, U> function, BinaryOperator<U> combiner,
+                           Predicate<? super U> stop) throws InterruptedException {
+                return upstream.evaluate(identity, (u, t) -> function.apply(u, f.apply(t)), combiner, stop);
+            }
+        };
+    }
+
+    /**
+     * Collects elements to a new list in order.
+     *
+     * @return list of elements
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public List<T> toList() throws InterruptedException {
+        return evaluate(ArrayList::new, (list, t) -> {
+            list.add(t);
+            return list;
+        }, (list1, list2) -> {
+            list1.addAll(list2);
+            return list1;
+        }, list -> false);
+    }
+
+    /**
+     * Reduces elements with the operator.
+     *
+     * @param identity neutral element of the operator
+     * @param operator associative reduction operator
+     * @return reduced value
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public T reduce(T identity, BinaryOperator<T> operator) throws InterruptedException {
+        return evaluate(() -> identity, operator, operator, t -> false);
+    }
+
+    /**
+     * Counts elements.
+     *
+     * @return number of elements
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public int count() throws InterruptedException {
+        return evaluate(IterativeParallelism.IntHolder::new, (u, t) -> {
+            u.value++;
+            return u;
+        }, IterativeParallelism.IntHolder::add, u -> false).value;
+    }
+
+    /**
+     * Returns whether some element satisfies the predicate. Workers stop as soon as some of them finds one.
+     *
+     * @param predicate test predicate
+     * @return whether some element satisfies the predicate
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public boolean anyMatch(Predicate<? super T> predicate) throws InterruptedException {
+        AtomicBoolean found = new AtomicBoolean();
+        return evaluate(() -> Boolean.FALSE, (u, t) -> {
+            if (!u && predicate.test(t)) {
+                found.set(true);
+                return Boolean.TRUE;
+            }
+            return u;
+        }, Boolean::logicalOr, u -> found.get());
+    }
+
+    /**
+     * Returns whether all elements satisfy the predicate. Workers stop as soon as some of them finds one that does not.
+     *
+     * @param predicate test predicate
+     * @return whether all elements satisfy the predicate
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public boolean allMatch(Predicate<? super T> predicate) throws InterruptedException {
+        return !anyMatch(predicate.negate());
+    }
+}
@@ -0,0 +1,82 @@
+package info.kgeorgiy.ja.shchetinin.iterative;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.Queue;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * The ReduceTask class reduces a range of elements on a fork/join pool, splitting it in halves
+ * down to the grain size, so idle workers can steal the halves that are not started yet.
+ * <p>
+ * The range is given in visited indices: visited index {@code k} is the element with index {@code k * step}.
+ * Partial results are combined left to right, so the order of elements is preserved.
+ *
+ * @param <U> the type of the accumulator
+ */
+@SuppressWarnings("serial")
+class ReduceTask<U> extends RecursiveTask<U> {
+    private final int size;
+    private final int step;
+    private final int from;
+    private final int to;
+    private final int grain;
+    private final Supplier<U> identity;
+    private final SliceReducer<U> reducer;
+    private final BinaryOperator<U> combiner;
+    private final Queue<Long> durations;
+
+    /**
+     * Constructs a new ReduceTask for the visited indices {@code [from, to)}.
+     *
+     * @param size     the number of elements
+     * @param step     the step size indicating how many elements to skip in each iteration
+     * @param from     the first visited index, inclusive
+     * @param to       the last visited index, exclusive
+     * @param grain    the maximal number of visited elements reduced without splitting
+     * @param identity the supplier of initial accumulator values
+     * @param reducer  the reducer of ranges of elements
+     * @param combiner the function to combine partial results
+     * @param durations the queue to add times of leaf tasks to, {@code null} if they are not measured
+     */
+    ReduceTask(int size, int step, int from, int to, int grain,
+               Supplier<U> identity, SliceReducer<U> reducer, BinaryOperator<U> combiner, Queue<Long> durations) {
+        this.size = size;
+        this.step = step;
+        this.from = from;
+        this.to = to;
+        this.grain = grain;
+        this.identity = identity;
+        this.reducer = reducer;
+        this.combiner = combiner;
+        this.durations = durations;
+    }
+
+    /**
+     * Returns number of visited indices of elements with the step.
+     *
+     * @param size number of elements
+     * @param step the step size
+     * @return number of visited indices
+     */
+    static int visited(int size, int step) {
+        return (int) (((long) size + step - 1) / step);
+    }
+
+    @Override
+    protected U compute() {
+        if (to - from <= grain) {
+            long started = durations == null ? 0 : System.nanoTime();
+            U accumulator = reducer.reduce(from * step, (int) Math.min((long) to * step, size), identity.get());
+            if (durations != null) {
+                durations.add(System.nanoTime() - started);
+            }
+            return accumulator;
+        }
+        int middle = (from + to) >>> 1;
+        ReduceTask<U> right = new ReduceTask<>(size, step, middle, to, grain, identity, reducer, combiner, durations);
+        right.fork();
+        U left = new ReduceTask<>(size, step, from, middle, grain, identity, reducer, combiner, durations).compute();
+        return combiner.apply(left, right.join());
+    }
+}
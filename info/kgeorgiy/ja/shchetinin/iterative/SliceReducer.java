@@ -0,0 +1,20 @@
+package info.kgeorgiy.ja.shchetinin.iterative;
+
+/**
+ * The SliceReducer interface reduces elements of one slice of the list: indices {@code from, from + step, ...}
+ * below {@code to}, where the elements and the step are fixed by the reducer.
+ *
+ * @param <U> the type of the accumulator
+ */
+@FunctionalInterface
+interface SliceReducer<U> {
+    /**
+     * Reduces elements of the slice.
+     *
+     * @param from        the first index, inclusive, a multiple of the step
+     * @param to          the last index, exclusive
+     * @param accumulator the initial value of the accumulator
+     * @return the final value of the accumulator
+     */
+    U reduce(int from, int to, U accumulator);
+}
@@ -0,0 +1,24 @@
+package info.kgeorgiy.ja.shchetinin.mapper;
+
+/**
+ * Receives timings of {@link ParallelMapperImpl#map} calls.
+ * Methods are called from worker threads and from threads calling {@code map}, concurrently,
+ * so implementations should be thread-safe and fast.
+ */
+public interface MapperListener {
+    /**
+     * Called after a task finished, successfully or not.
+     *
+     * @param queueNanos time from the start of the {@code map} call to the start of the task
+     * @param runNanos   time of the task
+     */
+    void taskFinished(long queueNanos, long runNanos);
+
+    /**
+     * Called after a {@code map} call returned results or threw an exception of the function.
+     *
+     * @param tasks     number of tasks in the call
+     * @param wallNanos time of the call
+     */
+    void mapFinished(int tasks, long wallNanos);
+}
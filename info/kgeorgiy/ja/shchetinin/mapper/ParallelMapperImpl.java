@@ -2,17 +2,295 @@ package info.kgeorgiy.ja.shchetinin.mapper;
 
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.Function;
 
+/**
+ * The ParallelMapperImpl class maps lists on a fixed set of long-lived worker threads
+ * that take tasks from a shared queue, or, if created by {@link #virtual(int)}, on a new virtual thread per task.
+ * <p>
+ * Results are returned in the order of arguments. If the function throws, {@link #map} throws
+ * the first exception or error after all tasks of the call are finished, others are suppressed by it;
+ * a failed task never stops the worker that ran it.
+ * After {@link #close()} workers are stopped and unfinished {@link #map} calls throw {@link IllegalStateException}.
+ */
 public class ParallelMapperImpl implements ParallelMapper {
+    private final List<Thread> workers;
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final Set<Results<?>> running = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ThreadFactory virtualFactory;
+    private final Set<Thread> virtualWorkers = ConcurrentHashMap.newKeySet();
+    private volatile MapperListener listener;
+    private volatile boolean closed;
+
+    /**
+     * Results of one {@link #map} call.
+     *
+     * @param <R> type of results
+     */
+    private class Results<R> {
+        private final List<R> results;
+        private int remaining;
+        private Throwable error;
+        private boolean cancelled;
+
+        Results(int size) {
+            results = new ArrayList<>(Collections.nCopies(size, null));
+            remaining = size;
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        synchronized void set(int index, R result) {
+            results.set(index, result);
+            finishTask();
+        }
+
+        synchronized void fail(Throwable e) {
+            if (error == null) {
+                error = e;
+            } else {
+                error.addSuppressed(e);
+            }
+            finishTask();
+        }
+
+        private void finishTask() {
+            if (--remaining == 0) {
+                notifyAll();
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+
+        synchronized List<R> await() throws InterruptedException {
+            while (remaining > 0 && !cancelled) {
+                wait();
+            }
+            if (remaining > 0) {
+                throw new IllegalStateException("Mapper was closed");
+            }
+            if (error instanceof RuntimeException e) {
+                throw e;
+            }
+            if (error instanceof Error e) {
+                throw e;
+            }
+            if (error != null) {
+                // a checked exception thrown sneakily by the function
+                throw new IllegalStateException("Function threw a checked exception", error);
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Constructs a new ParallelMapperImpl and starts its workers.
+     *
+     * @param threads number of worker threads
+     * @throws IllegalArgumentException if {@code threads} is not positive
+     */
+    public ParallelMapperImpl(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads should be positive: " + threads);
+        }
+        permits = null;
+        virtualFactory = null;
+        workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::work, "parallel-mapper-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    private ParallelMapperImpl(Semaphore permits) {
+        this.permits = permits;
+        virtualFactory = Thread.ofVirtual().name("parallel-mapper-virtual-", 0).factory();
+        workers = List.of();
+    }
+
+    /**
+     * Constructs a new ParallelMapperImpl that runs every task on its own virtual thread.
+     * <p>
+     * At most {@code concurrency} tasks run at the same time, {@link #map} waits for a running task
+     * to finish before starting the next one. Tasks that block on I/O do not occupy platform threads,
+     * so the limit may be much larger than the number of processors.
+     *
+     * @param concurrency maximal number of concurrently running tasks of all calls
+     * @return new mapper
+     * @throws IllegalArgumentException if {@code concurrency} is not positive
+     */
+    public static ParallelMapperImpl virtual(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency should be positive: " + concurrency);
+        }
+        return new ParallelMapperImpl(new Semaphore(concurrency));
+    }
+
+    /**
+     * Sets listener of timings of tasks and calls.
+     *
+     * @param listener listener, {@code null} to stop reporting
+     */
+    public void setListener(MapperListener listener) {
+        this.listener = listener;
+    }
+
+    private void work() {
+        while (true) {
+            Runnable task;
+            synchronized (tasks) {
+                while (tasks.isEmpty() && !closed) {
+                    try {
+                        tasks.wait();
+                    } catch (InterruptedException ignored) {
+                        // :NOTE: only close() stops the worker, it is checked by the loop
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                task = tasks.poll();
+            }
+            task.run();
+            // the function may restore the interrupt flag, it should not affect the next tasks
+            Thread.interrupted();
+        }
+    }
+
     @Override
     public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
-        return null;
+        if (closed) {
+            throw new IllegalStateException("Mapper was closed");
+        }
+        Results<R> results = new Results<>(args.size());
+        if (args.isEmpty()) {
+            return results.await();
+        }
+        MapperListener listener = this.listener;
+        long started = listener == null ? 0 : System.nanoTime();
+        running.add(results);
+        try {
+            if (permits != null) {
+                startVirtual(results, f, args, listener, started);
+            } else {
+                synchronized (tasks) {
+                    int index = 0;
+                    for (T arg : args) {
+                        tasks.add(task(results, index++, f, arg, listener, started));
+                    }
+                    tasks.notifyAll();
+                }
+            }
+            if (closed) {
+                results.cancel();
+            }
+            try {
+                return results.await();
+            } finally {
+                if (listener != null && !results.isCancelled()) {
+                    listener.mapFinished(args.size(), System.nanoTime() - started);
+                }
+            }
+        } catch (InterruptedException e) {
+            results.cancel();
+            throw e;
+        } finally {
+            running.remove(results);
+        }
+    }
+
+    private static <T, R> Runnable task(Results<R> results, int index, Function<? super T, ? extends R> f, T arg,
+                                        MapperListener listener, long enqueued) {
+        return () -> {
+            if (results.isCancelled()) {
+                return;
+            }
+            long started = listener == null ? 0 : System.nanoTime();
+            try {
+                R result;
+                try {
+                    result = f.apply(arg);
+                } finally {
+                    if (listener != null) {
+                        listener.taskFinished(started - enqueued, System.nanoTime() - started);
+                    }
+                }
+                results.set(index, result);
+            } catch (Throwable e) {
+                results.fail(e);
+            }
+        };
     }
 
+    private <T, R> void startVirtual(Results<R> results, Function<? super T, ? extends R> f, List<? extends T> args,
+                                     MapperListener listener, long started) throws InterruptedException {
+        int index = 0;
+        for (T arg : args) {
+            permits.acquire();
+            if (closed || results.isCancelled()) {
+                permits.release();
+                return;
+            }
+            Runnable task = task(results, index++, f, arg, listener, started);
+            Thread worker = virtualFactory.newThread(() -> {
+                try {
+                    task.run();
+                } finally {
+                    virtualWorkers.remove(Thread.currentThread());
+                    permits.release();
+                }
+            });
+            virtualWorkers.add(worker);
+            worker.start();
+            if (closed) {
+                worker.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Cancels unfinished {@link #map} calls, which throw {@link IllegalStateException},
+     * then interrupts workers and waits for them to finish their current tasks.
+     */
     @Override
     public void close() {
-
+        synchronized (tasks) {
+            closed = true;
+            tasks.clear();
+            tasks.notifyAll();
+        }
+        for (Results<?> results : running) {
+            results.cancel();
+        }
+        List<Thread> stopped = new ArrayList<>(workers);
+        stopped.addAll(virtualWorkers);
+        for (Thread worker : stopped) {
+            worker.interrupt();
+        }
+        boolean interrupted = false;
+        for (Thread worker : stopped) {
+            while (true) {
+                try {
+                    worker.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
@@ -0,0 +1,112 @@
+package info.kgeorgiy.ja.shchetinin.mapper.test;
+
+import info.kgeorgiy.ja.shchetinin.mapper.ParallelMapperImpl;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelMapperTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final List<Integer> ARGS = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+    private static List<Integer> doubled() {
+        return ARGS.stream().map(x -> x * 2).collect(Collectors.toList());
+    }
+
+    private static void checkWorks(ParallelMapperImpl mapper) {
+        assertEquals(doubled(), assertTimeoutPreemptively(TIMEOUT, () -> mapper.map(x -> x * 2, ARGS)));
+    }
+
+    private static void checkFailures(ParallelMapperImpl mapper) {
+        RuntimeException exception = new IllegalArgumentException("expected");
+        assertSame(exception, assertThrows(IllegalArgumentException.class, () -> mapper.map(x -> {
+            if (x == 50) {
+                throw exception;
+            }
+            return x;
+        }, ARGS)));
+        checkWorks(mapper);
+
+        assertThrows(StackOverflowError.class, () -> mapper.map(x -> {
+            if (x % 10 == 0) {
+                throw new StackOverflowError();
+            }
+            return x;
+        }, ARGS));
+        checkWorks(mapper);
+    }
+
+    @Test
+    void functionThrows() {
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(3)) {
+            checkFailures(mapper);
+        }
+    }
+
+    @Test
+    void functionThrowsVirtual() {
+        try (ParallelMapperImpl mapper = ParallelMapperImpl.virtual(3)) {
+            checkFailures(mapper);
+        }
+    }
+
+    @Test
+    void interruptRestoringFunction() {
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(1)) {
+            List<Integer> result = assertTimeoutPreemptively(TIMEOUT, () -> mapper.map(x -> {
+                Thread.currentThread().interrupt();
+                return x * 2;
+            }, ARGS));
+            assertEquals(doubled(), result);
+            checkWorks(mapper);
+        }
+    }
+
+    private static void checkCloseDuringMap(ParallelMapperImpl mapper) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        // ignores interrupts, so only the cancelled tasks that were not started may be skipped
+        Function<Integer, Integer> stubborn = x -> {
+            started.countDown();
+            long end = System.nanoTime() + Duration.ofMillis(50).toNanos();
+            while (System.nanoTime() < end) {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException ignored) {
+                }
+            }
+            return x;
+        };
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                mapper.map(stubborn, ARGS);
+            } catch (Throwable e) {
+                thrown.set(e);
+            }
+        });
+        caller.start();
+        started.await();
+        assertTimeoutPreemptively(TIMEOUT, mapper::close);
+        assertTimeoutPreemptively(TIMEOUT, () -> caller.join());
+        assertTrue(thrown.get() instanceof IllegalStateException, "Unfinished map should fail: " + thrown.get());
+        assertThrows(IllegalStateException.class, () -> mapper.map(x -> x, ARGS));
+    }
+
+    @Test
+    void closeDuringMap() throws InterruptedException {
+        checkCloseDuringMap(new ParallelMapperImpl(2));
+    }
+
+    @Test
+    void closeDuringMapVirtual() throws InterruptedException {
+        checkCloseDuringMap(ParallelMapperImpl.virtual(2));
+    }
+}
@@ -0,0 +1,61 @@
+package info.kgeorgiy.ja.shchetinin.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies with power of two buckets in microseconds:
+ * bucket {@code 0} counts latencies below {@code 1} microsecond, bucket {@code i} counts latencies
+ * in {@code [2^(i-1), 2^i)} microseconds, and the last bucket is unbounded.
+ * The histogram is thread-safe.
+ */
+public final class LatencyHistogram {
+    /**
+     * Number of buckets.
+     */
+    public static final int BUCKETS = 32;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        counts[Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(micros))].increment();
+    }
+
+    /**
+     * Returns current counts of buckets.
+     *
+     * @return counts per bucket
+     */
+    public long[] counts() {
+        long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            result[i] = counts[i].sum();
+        }
+        return result;
+    }
+
+    /**
+     * Returns exclusive upper bounds of buckets, the last bucket is unbounded.
+     *
+     * @return upper bounds in microseconds
+     */
+    public static long[] bucketsMicros() {
+        long[] bounds = new long[BUCKETS - 1];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = 1L << i;
+        }
+        return bounds;
+    }
+}
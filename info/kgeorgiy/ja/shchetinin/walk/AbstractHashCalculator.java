@@ -1,33 +1,103 @@
 package info.kgeorgiy.ja.shchetinin.walk;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.function.Consumer;
 
+/**
+ * Base class of hash calculators. A calculator is not thread-safe, but may be reused for any number of files.
+ */
 public abstract class AbstractHashCalculator {
-    private static final int BUFFER_SIZE = 64;
-    protected byte[] buffer = new byte[BUFFER_SIZE];
-    protected FileInputStream fileReader;
+    private final Consumer<ByteBuffer> consumer = this::calcHashBuffer;
     protected int hash;
-    protected String result;
-    public AbstractHashCalculator(File file) throws FileNotFoundException {
-        fileReader = new FileInputStream(file);
-    }
+    protected byte[] digest;
 
-    public String calcHash() throws IOException {
+    /**
+     * Calculates hash of the file.
+     *
+     * @param path         file to hash
+     * @param readStrategy way of reading the file
+     * @return digest, the array is reused by the next call
+     * @throws IOException if the file can not be read
+     */
+    public byte[] calcHash(Path path, ReadStrategy readStrategy) throws IOException {
+        if (digest == null) {
+            digest = new byte[getDigestLength()];
+        }
         preCalc();
-        int amount = 0;
-        while ((amount = fileReader.read(buffer, 0, BUFFER_SIZE)) >= 0) {
-            calcHashBuffer(amount);
+        try (FileChannel channel = FileChannel.open(path)) {
+            read(channel, readStrategy);
         }
         postCalc();
-        return result;
+        return digest;
+    }
+
+    /**
+     * Passes contents of the file to {@link #calcHashBuffer}.
+     *
+     * @param channel      opened file
+     * @param readStrategy way of reading the file
+     * @throws IOException if the file can not be read
+     */
+    protected void read(FileChannel channel, ReadStrategy readStrategy) throws IOException {
+        readStrategy.read(channel, consumer);
+    }
+
+    /**
+     * Returns hash that is reported for files that can not be read.
+     *
+     * @return zero digest of the same length as a real one
+     */
+    public byte[] zeroHash() {
+        return new byte[getDigestLength()];
     }
 
-    protected abstract void calcHashBuffer(int amount);
+    /**
+     * Returns lengths of digests written one after another in a single result, they are printed separated by spaces.
+     *
+     * @return lengths of digests in bytes
+     */
+    public int[] getDigestLengths() {
+        return new int[]{getDigestLength()};
+    }
+
+    /**
+     * Consumes next part of the file. All remaining bytes of the buffer should be consumed.
+     *
+     * @param buffer next part of the file
+     */
+    protected abstract void calcHashBuffer(ByteBuffer buffer);
 
+    /**
+     * Resets state of the calculator before a new file.
+     */
     protected abstract void preCalc();
 
+    /**
+     * Finishes calculation and stores hash to {@link #digest}.
+     */
     protected abstract void postCalc();
+
+    /**
+     * Returns length of digest in bytes.
+     *
+     * @return length of digest
+     */
+    protected abstract int getDigestLength();
+
+    /**
+     * Stores value to {@link #digest} in big-endian order, so it is printed the same way as {@code %x} prints it.
+     *
+     * @param value  value to store
+     * @param offset offset in digest
+     * @param length number of bytes to store
+     */
+    protected void putBigEndian(long value, int offset, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            digest[i] = (byte) value;
+            value >>>= 8;
+        }
+    }
 }
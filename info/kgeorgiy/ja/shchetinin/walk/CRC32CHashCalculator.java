@@ -0,0 +1,28 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+public class CRC32CHashCalculator extends AbstractHashCalculator {
+    private final CRC32C crc = new CRC32C();
+
+    @Override
+    protected void calcHashBuffer(ByteBuffer buffer) {
+        crc.update(buffer);
+    }
+
+    @Override
+    protected void preCalc() {
+        crc.reset();
+    }
+
+    @Override
+    protected void postCalc() {
+        putBigEndian(crc.getValue(), 0, 4);
+    }
+
+    @Override
+    protected int getDigestLength() {
+        return 4;
+    }
+}
@@ -0,0 +1,34 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+
+/**
+ * Reads files through {@link FileChannel} into a large direct buffer, one buffer per thread.
+ */
+public class ChannelReadStrategy implements ReadStrategy {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+
+    private final ThreadLocal<ByteBuffer> buffers;
+
+    public ChannelReadStrategy() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public ChannelReadStrategy(int bufferSize) {
+        buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(bufferSize));
+    }
+
+    @Override
+    public void read(FileChannel channel, Consumer<ByteBuffer> consumer) throws IOException {
+        ByteBuffer buffer = buffers.get();
+        buffer.clear();
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            consumer.accept(buffer);
+            buffer.clear();
+        }
+    }
+}
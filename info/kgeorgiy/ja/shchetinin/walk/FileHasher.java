@@ -0,0 +1,74 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Calculates hashes of single files for one walk, consulting the hash cache and recording metrics if they are enabled.
+ * Errors are reported as a hash of zeros.
+ */
+public class FileHasher {
+    private final WalkOptions options;
+    private final HashCache cache;
+    private final WalkMetrics metrics;
+
+    public FileHasher(WalkOptions options, HashCache cache) {
+        this(options, cache, null);
+    }
+
+    public FileHasher(WalkOptions options, HashCache cache, WalkMetrics metrics) {
+        this.options = options;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Calculates hash of the file.
+     *
+     * @param path       path of the file, {@code null} means that the file can not be read
+     * @param attributes attributes of the file if they are known, {@code null} otherwise
+     * @return digest
+     */
+    public byte[] hash(Path path, BasicFileAttributes attributes) {
+        String hashType = options.getHashType();
+        AbstractHashCalculator calculator = HashRegistry.calculator(hashType);
+        if (path == null) {
+            return error(calculator);
+        }
+        long start = metrics == null ? 0 : System.nanoTime();
+        try {
+            if (attributes == null && (cache != null || metrics != null)) {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            }
+            boolean cacheable = cache != null && attributes.isRegularFile();
+            if (cacheable) {
+                byte[] cached = cache.get(path, attributes, hashType);
+                if (metrics != null) {
+                    metrics.recordCacheLookup(cached != null);
+                }
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            byte[] hash = calculator.calcHash(path, options.getReadStrategy()).clone();
+            if (cacheable) {
+                cache.put(path, attributes, hashType, hash);
+            }
+            if (metrics != null) {
+                metrics.recordFile(attributes.size(), System.nanoTime() - start);
+            }
+            return hash;
+        } catch (IOException | SecurityException e) {
+            return error(calculator);
+        }
+    }
+
+    private byte[] error(AbstractHashCalculator calculator) {
+        if (metrics != null) {
+            metrics.recordError();
+        }
+        return calculator.zeroHash();
+    }
+}
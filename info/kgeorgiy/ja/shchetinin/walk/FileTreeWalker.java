@@ -0,0 +1,158 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Walks file trees with {@link Files#walkFileTree}, without recursion on the Java stack.
+ * <p>
+ * Include and exclude globs are matched against the path relative to the walked root and against the file name,
+ * a pattern matches if it matches either of them. Files are reported if they match some include pattern
+ * (or there are no include patterns) and match no exclude pattern; excluded directories are not entered.
+ * Roots are reported as is, without filtering. Files that can not be visited and directories
+ * that can not be read to the end are reported without a path, the walk goes on.
+ */
+public class FileTreeWalker {
+    /**
+     * Policy of handling symbolic links found during the walk.
+     */
+    public enum LinkPolicy {
+        /** Follow all links, like the original walk did. */
+        FOLLOW,
+        /** Report links to regular files, do not enter links to directories. */
+        FILES,
+        /** Ignore all links. */
+        SKIP
+    }
+
+    /**
+     * Receives files found during the walk.
+     */
+    @FunctionalInterface
+    public interface FileConsumer {
+        /**
+         * Receives a file.
+         *
+         * @param filename   name to report the file with
+         * @param path       path of the file or {@code null} if it can not be visited
+         * @param attributes attributes of the file if they were already read, {@code null} otherwise
+         * @throws IOException if the file can not be processed
+         */
+        void accept(String filename, Path path, BasicFileAttributes attributes) throws IOException;
+    }
+
+    private final boolean recursive;
+    private final int maxDepth;
+    private final LinkPolicy linkPolicy;
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+
+    public FileTreeWalker(boolean recursive, int maxDepth, LinkPolicy linkPolicy, List<String> includes, List<String> excludes) {
+        this.recursive = recursive;
+        this.maxDepth = maxDepth;
+        this.linkPolicy = linkPolicy;
+        this.includes = matchers(includes);
+        this.excludes = matchers(excludes);
+    }
+
+    private static List<PathMatcher> matchers(List<String> globs) {
+        FileSystem fs = FileSystems.getDefault();
+        return globs.stream().map(glob -> fs.getPathMatcher("glob:" + glob)).toList();
+    }
+
+    /**
+     * Reports the file or, if the walk is recursive and the file is a directory, all files in its tree.
+     *
+     * @param filename name of the root
+     * @param consumer receiver of files
+     * @throws IOException if the consumer failed
+     */
+    public void walk(String filename, FileConsumer consumer) throws IOException {
+        Path root;
+        try {
+            root = Path.of(filename);
+        } catch (InvalidPathException e) {
+            consumer.accept(filename, null, null);
+            return;
+        }
+        LinkOption[] linkOptions = linkPolicy == LinkPolicy.FOLLOW ? new LinkOption[0] : new LinkOption[]{LinkOption.NOFOLLOW_LINKS};
+        if (!recursive || !Files.isDirectory(root, linkOptions)) {
+            consumer.accept(filename, root, null);
+            return;
+        }
+        Set<FileVisitOption> visitOptions = linkPolicy == LinkPolicy.FOLLOW
+                ? EnumSet.of(FileVisitOption.FOLLOW_LINKS)
+                : EnumSet.noneOf(FileVisitOption.class);
+        Files.walkFileTree(root, visitOptions, maxDepth, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return dir.equals(root) || !matches(excludes, root, dir)
+                        ? FileVisitResult.CONTINUE
+                        : FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isDirectory()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                BasicFileAttributes attributes = attrs;
+                if (attrs.isSymbolicLink()) {
+                    if (linkPolicy == LinkPolicy.SKIP || !Files.isRegularFile(file)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    attributes = null;
+                }
+                if (isReported(root, file)) {
+                    consumer.accept(file.toString(), file, attributes);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                failed(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                // :NOTE: reading of the directory failed midway, the rest of the walk goes on
+                if (exc != null) {
+                    failed(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            private void failed(Path file) throws IOException {
+                if (file.equals(root)) {
+                    consumer.accept(filename, null, null);
+                } else if (isReported(root, file)) {
+                    consumer.accept(file.toString(), null, null);
+                }
+            }
+        });
+    }
+
+    private boolean isReported(Path root, Path file) {
+        return (includes.isEmpty() || matches(includes, root, file)) && !matches(excludes, root, file);
+    }
+
+    private static boolean matches(List<PathMatcher> matchers, Path root, Path file) {
+        if (matchers.isEmpty()) {
+            return false;
+        }
+        Path relative = root.relativize(file);
+        Path name = file.getFileName();
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(relative) || name != null && matcher.matches(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,228 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persistent cache of file hashes keyed by path, size, modification time and file key (inode where available).
+ * <p>
+ * A cached hash is returned only if all of them are the same as when the hash was stored.
+ * Hashes of files modified after the cache was opened are not stored, because a later modification
+ * within the timestamp granularity would be invisible.
+ * The cache is thread-safe.
+ */
+public class HashCache {
+    private static final int MAGIC = 0x57484331;
+    /**
+     * Size of an entry with empty strings and hash, fields are in the order of {@link #save()}.
+     */
+    private static final int MIN_ENTRY_BYTES = Integer.BYTES // path length
+            + Integer.BYTES // hash type length
+            + Long.BYTES // size
+            + Long.BYTES // modification time
+            + Integer.BYTES // file key length
+            + Integer.BYTES; // hash length
+
+    private final Path file;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final long openedAt = System.currentTimeMillis();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private record Key(String path, String hashType) {
+    }
+
+    private record Entry(long size, long modified, String fileKey, byte[] hash, boolean used) {
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && modified == attributes.lastModifiedTime().toMillis()
+                    && fileKey.equals(fileKeyOf(attributes));
+        }
+    }
+
+    private HashCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens cache stored in the file, missing file means empty cache.
+     *
+     * @param file cache file
+     * @return opened cache
+     * @throws IOException if the file exists, but can not be read, is not a cache file or is corrupted
+     */
+    public static HashCache open(Path file) throws IOException {
+        HashCache cache = new HashCache(file);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a hash cache file: " + file);
+            }
+            int size = in.readInt();
+            if (size < 0 || size > in.available() / MIN_ENTRY_BYTES) {
+                throw new IOException("Corrupted hash cache file: " + file);
+            }
+            for (int i = size; i > 0; i--) {
+                Key key = new Key(readString(in), readString(in));
+                cache.entries.put(key, new Entry(in.readLong(), in.readLong(), readString(in), readBytes(in), false));
+            }
+        } catch (NoSuchFileException ignored) {
+        }
+        return cache;
+    }
+
+    /**
+     * Creates empty cache stored in the file, the file is replaced on {@link #save()}.
+     *
+     * @param file cache file
+     * @return empty cache
+     */
+    public static HashCache empty(Path file) {
+        return new HashCache(file);
+    }
+
+    /**
+     * Returns cached hash if the file was not changed since it was stored.
+     *
+     * @param path       path of the file
+     * @param attributes current attributes of the file
+     * @param hashType   type of the hash
+     * @return cached hash or {@code null}, the array must not be modified
+     */
+    public byte[] get(Path path, BasicFileAttributes attributes, String hashType) {
+        Key key = new Key(key(path), hashType);
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.matches(attributes)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (!entry.used()) {
+            entries.replace(key, entry, new Entry(entry.size(), entry.modified(), entry.fileKey(), entry.hash(), true));
+        }
+        return entry.hash();
+    }
+
+    /**
+     * Stores hash of the file calculated when the file had given attributes.
+     *
+     * @param path       path of the file
+     * @param attributes attributes of the file read before hash calculation
+     * @param hashType   type of the hash
+     * @param hash       calculated hash
+     */
+    public void put(Path path, BasicFileAttributes attributes, String hashType, byte[] hash) {
+        long modified = attributes.lastModifiedTime().toMillis();
+        Key key = new Key(key(path), hashType);
+        if (modified >= openedAt) {
+            entries.remove(key);
+            return;
+        }
+        entries.put(key, new Entry(attributes.size(), modified, fileKeyOf(attributes), hash, true));
+    }
+
+    /**
+     * Removes all hashes of the file.
+     *
+     * @param path path of the file
+     */
+    public void invalidate(Path path) {
+        String invalidated = key(path);
+        entries.keySet().removeIf(key -> key.path().equals(invalidated));
+    }
+
+    /**
+     * Removes all hashes.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Removes hashes that were neither read nor stored since the cache was opened.
+     */
+    public void compact() {
+        entries.values().removeIf(entry -> !entry.used());
+    }
+
+    /**
+     * Writes the cache to its file, replacing the file atomically.
+     *
+     * @throws IOException if writing failed
+     */
+    public void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                Map<Key, Entry> snapshot = Map.copyOf(entries);
+                out.writeInt(MAGIC);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<Key, Entry> e : snapshot.entrySet()) {
+                    writeString(out, e.getKey().path());
+                    writeString(out, e.getKey().hashType());
+                    out.writeLong(e.getValue().size());
+                    out.writeLong(e.getValue().modified());
+                    writeString(out, e.getValue().fileKey());
+                    writeBytes(out, e.getValue().hash());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private static String fileKeyOf(BasicFileAttributes attributes) {
+        return Objects.toString(attributes.fileKey(), "");
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        // the stream is backed by an array, so available() is the exact number of remaining bytes
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Corrupted hash cache file: invalid length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        writeBytes(out, s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -1,56 +1,34 @@
 package info.kgeorgiy.ja.shchetinin.walk;
 
+import javax.management.JMException;
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
-import java.security.NoSuchAlgorithmException;
-import java.util.Objects;
+import java.nio.file.StandardOpenOption;
 
 public class HashCalculator {
-    public void recursiveWalk(File file, StringBuilder result, String filename, String hashType, boolean recursive) {
-        if (recursive && file.isDirectory() && file.listFiles() != null) {
-            for (File fileDirectory : Objects.requireNonNull(file.listFiles())) {
-                recursiveWalk(fileDirectory, result, Path.of(filename).resolve(fileDirectory.toPath()).toString(), hashType, true);
-            }
-            return;
-        }
-        String hash;
-        try {
-            AbstractHashCalculator hashCalculator;
-            if (hashType != null && hashType.equals("sha-1")) {
-                hashCalculator = new SHA1HashCalculator(file);
-            } else {
-                hashCalculator = new JenkinsHashCalculator(file);
-            }
-            hash = hashCalculator.calcHash();
-        } catch (IOException | NoSuchAlgorithmException | SecurityException e) {
-            if (hashType != null && hashType.equals("sha-1")) {
-                hash = "0000000000000000000000000000000000000000"; // :NOTE: constants
-            } else {
-                hash = "00000000";
-            }
-        }
-        result.append(hash).append(" ").append(filename).append("\n");
+    public void recursiveWalk(String filename, FileTreeWalker walker, HashPipeline pipeline, FileHasher hasher) throws IOException {
+        walker.walk(filename, (name, path, attributes) -> pipeline.submit(name, () -> hasher.hash(path, attributes)));
     }
 
     public void solve(String[] args, boolean recursive) {
-        if (args == null || args.length < 2) {
-            System.out.println("Not enough arguments");
-            return;
-        }
-        String hashType = "";
-        if (args.length >= 3) {
-            hashType = args[2];
-        }
-        if (args[0] == null || args[1] == null) {
-            System.out.println("Arguments are null.");
+        WalkOptions options;
+        try {
+            options = WalkOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
             return;
         }
+        solve(options, recursive);
+    }
+
+    public void solve(WalkOptions options, boolean recursive) {
         // :NOTE: use new java io api
-        File inputFile = new File(args[0]);
-        File outputFile = new File(args[1]);
+        File inputFile = new File(options.getInput());
+        File outputFile = new File(options.getOutput());
 
         try {
             Path outputFilePath = outputFile.toPath();
@@ -60,16 +38,107 @@ public class HashCalculator {
         } catch (IOException | InvalidPathException ignored) {
         }
 
+        HashCache cache = null;
+        if (options.getCachePath() != null) {
+            Path cachePath = null;
+            try {
+                cachePath = Path.of(options.getCachePath());
+                cache = HashCache.open(cachePath);
+            } catch (InvalidPathException e) {
+                System.out.println("Unable to open hash cache, walking without it: " + e.getMessage());
+            } catch (IOException e) {
+                System.out.println("Unable to read hash cache, starting with an empty one: " + e.getMessage());
+                cache = HashCache.empty(cachePath);
+            }
+        }
+        if (cache != null && options.isCacheInvalidate()) {
+            cache.invalidateAll();
+        }
+        WalkMetrics metrics = null;
+        if (options.getProgressMillis() > 0 || options.isJmx()) {
+            metrics = new WalkMetrics();
+            if (options.isJmx()) {
+                try {
+                    metrics.registerMBean();
+                } catch (JMException e) {
+                    System.out.println("Unable to register metrics MBean: " + e.getMessage());
+                }
+            }
+            if (options.getProgressMillis() > 0) {
+                metrics.startReporting(options.getProgressMillis(), System.err);
+            }
+        }
+        FileHasher hasher = new FileHasher(options, cache, metrics);
+        FileTreeWalker walker = new FileTreeWalker(recursive, options.getMaxDepth(), options.getLinkPolicy(),
+                options.getIncludes(), options.getExcludes());
+
+        WalkCheckpoint checkpoint = null;
+        WalkCheckpoint.Position resume = null;
+        if (options.getCheckpointPath() != null) {
+            try {
+                checkpoint = new WalkCheckpoint(Path.of(options.getCheckpointPath()), options.signature(recursive));
+                resume = checkpoint.load();
+            } catch (IOException | InvalidPathException e) {
+                System.out.println("Unable to read checkpoint, walking from the beginning: " + e.getMessage());
+            }
+        }
+
+        int[] digestLengths = HashRegistry.calculator(options.getHashType()).getDigestLengths();
+        boolean completed = false;
         try (BufferedReader inputFileReader = new BufferedReader(new FileReader(inputFile, StandardCharsets.UTF_8));
-             FileWriter fileWriter = new FileWriter(outputFile, StandardCharsets.UTF_8)) {
+             FileChannel outputChannel = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             HashWriter writer = new HashWriter(outputChannel, digestLengths, options.getFlushLines());
+             HashPipeline pipeline = new HashPipeline(writer, options.getThreads(), options.getInFlight())) {
+            long skip = 0;
+            if (resume != null && resume.outputOffset() <= outputChannel.size()) {
+                System.out.println("Resuming walk after line " + resume.lines());
+                skip = resume.lines();
+                outputChannel.truncate(resume.outputOffset());
+                outputChannel.position(resume.outputOffset());
+            } else {
+                outputChannel.truncate(0);
+            }
+            long line = 0;
             String fileName;
             while ((fileName = inputFileReader.readLine()) != null) {
-                StringBuilder result = new StringBuilder();
-                recursiveWalk(new File(fileName), result, fileName, hashType, recursive);
-                fileWriter.write(result.toString());
+                if (line++ < skip) {
+                    continue;
+                }
+                recursiveWalk(fileName, walker, pipeline, hasher);
+                if (checkpoint != null && line % options.getCheckpointLines() == 0) {
+                    pipeline.drain();
+                    writer.flush();
+                    outputChannel.force(false);
+                    checkpoint.save(new WalkCheckpoint.Position(line, outputChannel.position()));
+                }
             }
-        } catch (IOException | SecurityException e) {
+            completed = true;
+        } catch (IOException | SecurityException | InvalidPathException e) {
+            completed = false;
             System.out.println("Failed to read or write in file");
+        } finally {
+            if (metrics != null) {
+                metrics.close();
+            }
+        }
+        if (completed && checkpoint != null) {
+            try {
+                checkpoint.delete();
+            } catch (IOException e) {
+                System.out.println("Unable to delete checkpoint: " + e.getMessage());
+            }
+        }
+
+        if (cache != null) {
+            if (options.isCacheCompact()) {
+                cache.compact();
+            }
+            try {
+                cache.save();
+            } catch (IOException | SecurityException e) {
+                System.out.println("Unable to save hash cache: " + e.getMessage());
+            }
+            System.out.println("Hash cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses");
         }
     }
 }
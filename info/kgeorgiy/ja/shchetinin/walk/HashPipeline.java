@@ -0,0 +1,106 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Hashes files on a fixed pool of threads and writes their lines in submission order.
+ * <p>
+ * At most {@code inFlight} files are hashed or waiting to be written at the same time,
+ * the submitting thread writes finished lines when the limit is reached.
+ * With a single thread lines are computed and written on the submitting thread.
+ */
+public class HashPipeline implements Closeable {
+    private final HashWriter writer;
+    private final ExecutorService executor;
+    private final int inFlight;
+    private final Queue<Pending> pending = new ArrayDeque<>();
+
+    private record Pending(String filename, Future<byte[]> hash) {
+    }
+
+    public HashPipeline(HashWriter writer, int threads, int inFlight) {
+        this.writer = writer;
+        this.executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        this.inFlight = Math.max(1, inFlight);
+    }
+
+    /**
+     * Schedules hash calculation of one file.
+     *
+     * @param filename name of the file to write
+     * @param hash     calculation of the hash, should not throw
+     * @throws IOException if writing of previously computed lines failed
+     */
+    public void submit(String filename, Callable<byte[]> hash) throws IOException {
+        if (executor == null) {
+            writer.write(call(hash), filename);
+            return;
+        }
+        while (pending.size() >= inFlight) {
+            writeNext();
+        }
+        pending.add(new Pending(filename, executor.submit(hash)));
+    }
+
+    private void writeNext() throws IOException {
+        Pending next = pending.remove();
+        try {
+            writer.write(next.hash().get(), next.filename());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for hash");
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to calculate hash", e.getCause());
+        }
+    }
+
+    private static byte[] call(Callable<byte[]> hash) throws IOException {
+        try {
+            return hash.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Unable to calculate hash", e);
+        }
+    }
+
+    /**
+     * Waits for all submitted files and writes their lines.
+     *
+     * @throws IOException if writing failed
+     */
+    public void drain() throws IOException {
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+    }
+
+    /**
+     * Writes all pending lines and stops hashing threads. Does not close the writer.
+     *
+     * @throws IOException if writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (executor == null) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            for (Pending next : pending) {
+                next.hash().cancel(true);
+            }
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Registry of hash algorithms by name.
+ * <p>
+ * Hash type is either a single algorithm name or several names joined by {@code +},
+ * e.g. {@code crc32c+sha-256}, which calculates all of them in a single read of the file.
+ * Empty and unknown names mean {@value #DEFAULT}.
+ * Calculators are created once per thread and hash type and then reused.
+ */
+public final class HashRegistry {
+    public static final String DEFAULT = "jenkins";
+    public static final String SEPARATOR = "+";
+
+    private static final Map<String, Supplier<? extends AbstractHashCalculator>> ALGORITHMS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Map<String, AbstractHashCalculator>> CALCULATORS = ThreadLocal.withInitial(HashMap::new);
+
+    static {
+        register(DEFAULT, JenkinsHashCalculator::new);
+        register("sha-1", SHA1HashCalculator::new);
+        register("sha-256", () -> new MessageDigestHashCalculator("SHA-256"));
+        register("crc32c", CRC32CHashCalculator::new);
+        register("xxhash64", XXHash64Calculator::new);
+        register(TreeHashCalculator.NAME, TreeHashCalculator::new);
+    }
+
+    private HashRegistry() {
+    }
+
+    /**
+     * Registers algorithm, replacing previous one with the same name.
+     * Calculators already created by threads are not replaced.
+     *
+     * @param name    name of the algorithm, must not contain {@value #SEPARATOR}
+     * @param factory factory of calculators
+     */
+    public static void register(String name, Supplier<? extends AbstractHashCalculator> factory) {
+        if (name.contains(SEPARATOR)) {
+            throw new IllegalArgumentException("Algorithm name contains " + SEPARATOR + ": " + name);
+        }
+        ALGORITHMS.put(name, factory);
+    }
+
+    /**
+     * Returns names of registered algorithms.
+     *
+     * @return set of names
+     */
+    public static Set<String> names() {
+        return Collections.unmodifiableSet(new TreeSet<>(ALGORITHMS.keySet()));
+    }
+
+    /**
+     * Returns calculator of the current thread for the hash type.
+     *
+     * @param hashType hash type
+     * @return calculator, not thread-safe
+     */
+    public static AbstractHashCalculator calculator(String hashType) {
+        String type = hashType == null ? "" : hashType;
+        Map<String, AbstractHashCalculator> calculators = CALCULATORS.get();
+        AbstractHashCalculator calculator = calculators.get(type);
+        if (calculator == null) {
+            calculator = create(type);
+            calculators.put(type, calculator);
+        }
+        return calculator;
+    }
+
+    private static AbstractHashCalculator create(String hashType) {
+        if (!hashType.contains(SEPARATOR)) {
+            return ALGORITHMS.getOrDefault(hashType, ALGORITHMS.get(DEFAULT)).get();
+        }
+        List<AbstractHashCalculator> calculators = new ArrayList<>();
+        for (String name : hashType.split("\\" + SEPARATOR)) {
+            calculators.add(create(name));
+        }
+        return new MultiHashCalculator(calculators);
+    }
+}
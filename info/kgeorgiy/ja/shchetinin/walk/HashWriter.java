@@ -0,0 +1,113 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes lines {@code hash filename} to a channel in UTF-8 through a reusable buffer.
+ * <p>
+ * Digests are encoded as lowercase hexadecimal directly into the buffer; a result consisting of
+ * several digests is printed with a space between them.
+ * The buffer is written to the channel when it is full, on {@link #flush()}
+ * and after every {@code flushLines} lines if it is positive.
+ */
+public class HashWriter implements Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final WritableByteChannel channel;
+    private final int[] digestLengths;
+    private final int flushLines;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private int lines;
+
+    public HashWriter(WritableByteChannel channel, int[] digestLengths, int flushLines) {
+        this.channel = channel;
+        this.digestLengths = digestLengths.clone();
+        this.flushLines = flushLines;
+        int lineLength = 0;
+        for (int length : digestLengths) {
+            lineLength += length * 2 + 1;
+        }
+        this.buffer = ByteBuffer.allocate(Math.max(DEFAULT_BUFFER_SIZE, lineLength * 2));
+    }
+
+    /**
+     * Writes a line.
+     *
+     * @param hash     concatenated digests
+     * @param filename name of the file
+     * @throws IOException if writing failed
+     */
+    public void write(byte[] hash, String filename) throws IOException {
+        ensureRemaining(hash.length * 2 + digestLengths.length);
+        int offset = 0;
+        for (int length : digestLengths) {
+            for (int i = offset; i < offset + length; i++) {
+                buffer.put(HEX[(hash[i] >> 4) & 0xf]);
+                buffer.put(HEX[hash[i] & 0xf]);
+            }
+            offset += length;
+            buffer.put((byte) ' ');
+        }
+        encode(CharBuffer.wrap(filename));
+        ensureRemaining(1);
+        buffer.put((byte) '\n');
+        if (flushLines > 0 && ++lines >= flushLines) {
+            flush();
+        }
+    }
+
+    private void encode(CharBuffer chars) throws IOException {
+        encoder.reset();
+        while (encoder.encode(chars, buffer, true).isOverflow()) {
+            writeBuffer();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            writeBuffer();
+        }
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            writeBuffer();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes buffered lines to the channel.
+     *
+     * @throws IOException if writing failed
+     */
+    public void flush() throws IOException {
+        writeBuffer();
+        lines = 0;
+    }
+
+    /**
+     * Flushes buffered lines. Does not close the channel.
+     *
+     * @throws IOException if writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
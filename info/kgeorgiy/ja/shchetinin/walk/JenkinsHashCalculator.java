@@ -1,29 +1,35 @@
 package info.kgeorgiy.ja.shchetinin.walk;
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
 
 public class JenkinsHashCalculator extends AbstractHashCalculator {
-    public JenkinsHashCalculator(File file) throws FileNotFoundException {
-        super(file);
-    }
     @Override
-    protected void calcHashBuffer(int amount) {
-        for (int i = 0; i < amount; ++i) {
-            hash += buffer[i] & 0xff;
-            hash += hash << 10;
-            hash ^= hash >>> 6;
+    protected void calcHashBuffer(ByteBuffer buffer) {
+        int h = hash;
+        for (int i = buffer.position(); i < buffer.limit(); ++i) {
+            h += buffer.get(i) & 0xff;
+            h += h << 10;
+            h ^= h >>> 6;
         }
+        buffer.position(buffer.limit());
+        hash = h;
     }
 
     @Override
-    protected void preCalc() {}
+    protected void preCalc() {
+        hash = 0;
+    }
 
     @Override
     protected void postCalc() {
         hash += hash << 3;
         hash ^= hash >>> 11;
         hash += hash << 15;
-        result = String.format("%08x", hash);
+        putBigEndian(hash, 0, 4);
+    }
+
+    @Override
+    protected int getDigestLength() {
+        return 4;
     }
 }
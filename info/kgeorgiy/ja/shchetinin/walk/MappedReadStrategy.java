@@ -0,0 +1,31 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+
+/**
+ * Reads files by mapping them into memory, in regions of at most {@code regionSize} bytes.
+ */
+public class MappedReadStrategy implements ReadStrategy {
+    public static final long DEFAULT_REGION_SIZE = 1L << 30;
+
+    private final long regionSize;
+
+    public MappedReadStrategy() {
+        this(DEFAULT_REGION_SIZE);
+    }
+
+    public MappedReadStrategy(long regionSize) {
+        this.regionSize = Math.min(regionSize, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void read(FileChannel channel, Consumer<ByteBuffer> consumer) throws IOException {
+        long size = channel.size();
+        for (long position = channel.position(); position < size; position += regionSize) {
+            consumer.accept(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size - position)));
+        }
+    }
+}
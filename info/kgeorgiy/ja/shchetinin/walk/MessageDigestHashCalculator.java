@@ -0,0 +1,51 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hash calculator backed by a {@link MessageDigest} algorithm.
+ */
+public class MessageDigestHashCalculator extends AbstractHashCalculator {
+    protected final MessageDigest md;
+
+    /**
+     * Creates calculator for the algorithm.
+     *
+     * @param algorithm name of {@link MessageDigest} algorithm
+     * @throws IllegalArgumentException if the algorithm is not supported
+     */
+    public MessageDigestHashCalculator(String algorithm) {
+        try {
+            md = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported digest algorithm: " + algorithm, e);
+        }
+    }
+
+    @Override
+    protected void calcHashBuffer(ByteBuffer buffer) {
+        md.update(buffer);
+    }
+
+    @Override
+    protected void preCalc() {
+        md.reset();
+    }
+
+    @Override
+    protected void postCalc() {
+        try {
+            md.digest(digest, 0, digest.length);
+        } catch (DigestException e) {
+            throw new AssertionError("Digest buffer is too small", e);
+        }
+    }
+
+    @Override
+    protected int getDigestLength() {
+        return md.getDigestLength();
+    }
+}
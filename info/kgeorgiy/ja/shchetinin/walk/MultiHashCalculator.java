@@ -0,0 +1,55 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Calculates several hashes in a single read of the file. Digests are concatenated in the order of calculators.
+ */
+public class MultiHashCalculator extends AbstractHashCalculator {
+    private final List<AbstractHashCalculator> calculators;
+
+    public MultiHashCalculator(List<AbstractHashCalculator> calculators) {
+        this.calculators = List.copyOf(calculators);
+    }
+
+    @Override
+    protected void calcHashBuffer(ByteBuffer buffer) {
+        int position = buffer.position();
+        for (AbstractHashCalculator calculator : calculators) {
+            buffer.position(position);
+            calculator.calcHashBuffer(buffer);
+        }
+        buffer.position(buffer.limit());
+    }
+
+    @Override
+    protected void preCalc() {
+        for (AbstractHashCalculator calculator : calculators) {
+            if (calculator.digest == null) {
+                calculator.digest = new byte[calculator.getDigestLength()];
+            }
+            calculator.preCalc();
+        }
+    }
+
+    @Override
+    protected void postCalc() {
+        int offset = 0;
+        for (AbstractHashCalculator calculator : calculators) {
+            calculator.postCalc();
+            System.arraycopy(calculator.digest, 0, digest, offset, calculator.digest.length);
+            offset += calculator.digest.length;
+        }
+    }
+
+    @Override
+    public int[] getDigestLengths() {
+        return calculators.stream().mapToInt(AbstractHashCalculator::getDigestLength).toArray();
+    }
+
+    @Override
+    protected int getDigestLength() {
+        return calculators.stream().mapToInt(AbstractHashCalculator::getDigestLength).sum();
+    }
+}
@@ -0,0 +1,24 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+
+/**
+ * Way of reading file contents for hash calculation.
+ * <p>
+ * Implementations pass file contents to the consumer as a sequence of buffers,
+ * the consumer must read the buffer fully before returning and must not keep a reference to it.
+ * Implementations must be thread-safe.
+ */
+public interface ReadStrategy {
+    /**
+     * Reads whole channel from its current position.
+     *
+     * @param channel  channel to read
+     * @param consumer consumer of file contents
+     * @throws IOException if reading failed
+     */
+    void read(FileChannel channel, Consumer<ByteBuffer> consumer) throws IOException;
+}
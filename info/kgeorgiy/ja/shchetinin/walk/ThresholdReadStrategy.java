@@ -0,0 +1,29 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+
+/**
+ * Chooses between two strategies by file size: files smaller than the threshold are read by {@code small},
+ * other files by {@code large}.
+ */
+public class ThresholdReadStrategy implements ReadStrategy {
+    public static final long DEFAULT_THRESHOLD = 1L << 26;
+
+    private final ReadStrategy small;
+    private final ReadStrategy large;
+    private final long threshold;
+
+    public ThresholdReadStrategy(ReadStrategy small, ReadStrategy large, long threshold) {
+        this.small = small;
+        this.large = large;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void read(FileChannel channel, Consumer<ByteBuffer> consumer) throws IOException {
+        (channel.size() < threshold ? small : large).read(channel, consumer);
+    }
+}
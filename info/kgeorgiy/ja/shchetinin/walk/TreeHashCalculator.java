@@ -0,0 +1,134 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Merkle tree hash {@value #NAME}, it is <em>not</em> equal to SHA-256 of the file.
+ * <p>
+ * The file is split into chunks of {@value #CHUNK_SIZE} bytes, the last chunk may be shorter.
+ * The tree is the one of RFC 6962 (Certificate Transparency) over SHA-256:
+ * <ul>
+ *     <li>hash of a chunk is {@code SHA-256(0x00 || chunk)};</li>
+ *     <li>hash of {@code n > 1} chunks is {@code SHA-256(0x01 || left || right)}, where {@code left} is the hash
+ *     of the first {@code k} chunks, {@code right} is the hash of the rest
+ *     and {@code k} is the largest power of two less than {@code n};</li>
+ *     <li>hash of an empty file is {@code SHA-256()} of no bytes.</li>
+ * </ul>
+ * Files of at least {@value #PARALLEL_THRESHOLD} bytes are hashed by the common fork-join pool,
+ * every chunk is read with positional reads; the read strategy is not used for them.
+ */
+public class TreeHashCalculator extends AbstractHashCalculator {
+    public static final String NAME = "tree-sha-256";
+    public static final int CHUNK_SIZE = 1 << 20;
+    public static final long PARALLEL_THRESHOLD = 4L * CHUNK_SIZE;
+
+    private static final byte LEAF = 0;
+    private static final byte NODE = 1;
+    private static final ThreadLocal<MessageDigestHashCalculator> CHUNK_DIGESTS =
+            ThreadLocal.withInitial(() -> new MessageDigestHashCalculator("SHA-256"));
+    private static final ThreadLocal<ByteBuffer> CHUNK_BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(CHUNK_SIZE));
+
+    private final MessageDigestHashCalculator sha = new MessageDigestHashCalculator("SHA-256");
+    private final List<byte[]> leaves = new ArrayList<>();
+    private int chunkFilled;
+
+    @Override
+    protected void read(FileChannel channel, ReadStrategy readStrategy) throws IOException {
+        long size = channel.size();
+        if (size < PARALLEL_THRESHOLD) {
+            super.read(channel, readStrategy);
+            return;
+        }
+        int chunks = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        try {
+            leaves.addAll(Arrays.asList(IntStream.range(0, chunks).parallel()
+                    .mapToObj(i -> hashChunk(channel, (long) i * CHUNK_SIZE))
+                    .toArray(byte[][]::new)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static byte[] hashChunk(FileChannel channel, long position) {
+        ByteBuffer buffer = CHUNK_BUFFERS.get();
+        buffer.clear();
+        try {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.flip();
+        MessageDigestHashCalculator chunkDigest = CHUNK_DIGESTS.get();
+        chunkDigest.md.reset();
+        chunkDigest.md.update(LEAF);
+        chunkDigest.md.update(buffer);
+        return chunkDigest.md.digest();
+    }
+
+    @Override
+    protected void calcHashBuffer(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        while (buffer.hasRemaining()) {
+            if (chunkFilled == 0) {
+                sha.md.update(LEAF);
+            }
+            int length = Math.min(buffer.remaining(), CHUNK_SIZE - chunkFilled);
+            buffer.limit(buffer.position() + length);
+            sha.md.update(buffer);
+            buffer.limit(limit);
+            chunkFilled += length;
+            if (chunkFilled == CHUNK_SIZE) {
+                leaves.add(sha.md.digest());
+                chunkFilled = 0;
+            }
+        }
+    }
+
+    @Override
+    protected void preCalc() {
+        sha.md.reset();
+        leaves.clear();
+        chunkFilled = 0;
+    }
+
+    @Override
+    protected void postCalc() {
+        if (chunkFilled > 0) {
+            leaves.add(sha.md.digest());
+        }
+        byte[] root = leaves.isEmpty() ? sha.md.digest() : root(0, leaves.size());
+        System.arraycopy(root, 0, digest, 0, root.length);
+        leaves.clear();
+    }
+
+    private byte[] root(int from, int to) {
+        if (to - from == 1) {
+            return leaves.get(from);
+        }
+        int split = from + Integer.highestOneBit(to - from - 1);
+        byte[] left = root(from, split);
+        byte[] right = root(split, to);
+        sha.md.update(NODE);
+        sha.md.update(left);
+        sha.md.update(right);
+        return sha.md.digest();
+    }
+
+    @Override
+    protected int getDigestLength() {
+        return 32;
+    }
+}
@@ -0,0 +1,126 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Journal of a walk that allows to resume it after a crash.
+ * <p>
+ * A checkpoint is the number of fully processed input lines and the length of output written for them.
+ * It is written to a temporary file that is synced and atomically moved over the journal,
+ * then the directory is synced where the platform allows it, so the journal always holds the last complete checkpoint.
+ * The output must be synced before the checkpoint is saved.
+ * A journal of a walk with a different signature (input, output, hash type, traversal options) is ignored.
+ */
+public class WalkCheckpoint {
+    private static final int MAGIC = 0x57434b31;
+
+    private final Path journal;
+    private final String signature;
+
+    /**
+     * Saved position of the walk.
+     *
+     * @param lines        number of fully processed input lines
+     * @param outputOffset length of output written for them
+     */
+    public record Position(long lines, long outputOffset) {
+    }
+
+    public WalkCheckpoint(Path journal, String signature) {
+        this.journal = journal;
+        this.signature = signature;
+    }
+
+    /**
+     * Reads the last checkpoint.
+     *
+     * @return saved position or {@code null} if there is no journal of the same walk
+     * @throws IOException if the journal exists, but can not be read or is corrupted
+     */
+    public Position load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(journal)))) {
+            if (in.readInt() != MAGIC || !readString(in).equals(signature)) {
+                return null;
+            }
+            long lines = in.readLong();
+            long outputOffset = in.readLong();
+            if (lines < 0 || outputOffset < 0) {
+                throw new IOException("Corrupted checkpoint: invalid position " + lines + ", " + outputOffset);
+            }
+            return new Position(lines, outputOffset);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Durably replaces the journal with a new checkpoint.
+     *
+     * @param position position to save
+     * @throws IOException if writing failed
+     */
+    public void save(Position position) throws IOException {
+        Path parent = journal.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, journal.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                out.writeInt(MAGIC);
+                byte[] bytes = signature.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                out.writeLong(position.lines());
+                out.writeLong(position.outputOffset());
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        forceDirectory(parent);
+    }
+
+    /**
+     * Syncs the directory, so the rename survives a crash.
+     * Some platforms, like Windows, do not allow to open directories, there the rename is not synced.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Corrupted checkpoint: invalid length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Deletes the journal after the walk is completed.
+     *
+     * @throws IOException if deletion failed
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(journal);
+    }
+}
@@ -0,0 +1,195 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import info.kgeorgiy.ja.shchetinin.metrics.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one walk: files, bytes, errors, cache hits and misses, and per file size bucket
+ * histograms of hashing latency with power of two buckets in microseconds.
+ * Files count every reported file, while bytes and latencies count only files that were actually read,
+ * so cache hits do not inflate the throughput.
+ * <p>
+ * Metrics may be exported via JMX as {@value #OBJECT_NAME} and printed periodically as progress lines
+ * <pre>progress files=N bytes=N errors=N cache_hits=N cache_misses=N elapsed_ms=N files_per_s=N mb_per_s=N.N</pre>
+ * Metrics are thread-safe. When they are disabled no instance is created, so the walk does not pay for them.
+ */
+public class WalkMetrics implements WalkMetricsMXBean, AutoCloseable {
+    public static final String OBJECT_NAME = "info.kgeorgiy.ja.shchetinin.walk:type=WalkMetrics";
+
+    private static final long[] SIZE_BUCKETS = {1L << 12, 1L << 16, 1L << 20, 1L << 24, 1L << 28};
+    private static final String[] SIZE_BUCKET_NAMES = {"<4K", "<64K", "<1M", "<16M", "<256M", ">=256M"};
+
+    private final long started = System.nanoTime();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[SIZE_BUCKET_NAMES.length];
+    private ScheduledExecutorService reporter;
+    private PrintStream reporterOut;
+    private ObjectName registered;
+
+    public WalkMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records a file hashed by reading it.
+     *
+     * @param size  size of the file in bytes, {@code 0} if unknown
+     * @param nanos time of hashing
+     */
+    public void recordFile(long size, long nanos) {
+        files.increment();
+        bytes.add(size);
+        int sizeBucket = 0;
+        while (sizeBucket < SIZE_BUCKETS.length && size >= SIZE_BUCKETS[sizeBucket]) {
+            sizeBucket++;
+        }
+        latencies[sizeBucket].record(nanos);
+    }
+
+    /**
+     * Records a file that could not be hashed.
+     */
+    public void recordError() {
+        files.increment();
+        errors.increment();
+    }
+
+    /**
+     * Records a lookup in the hash cache. A hit is the only record of its file,
+     * a miss is followed by {@link #recordFile} or {@link #recordError()}.
+     *
+     * @param hit whether the hash was found
+     */
+    public void recordCacheLookup(boolean hit) {
+        if (hit) {
+            files.increment();
+            cacheHits.increment();
+        } else {
+            cacheMisses.increment();
+        }
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server.
+     *
+     * @throws JMException if registration failed
+     */
+    public synchronized void registerMBean() throws JMException {
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        registered = name;
+    }
+
+    /**
+     * Starts printing progress lines.
+     *
+     * @param periodMillis period of printing
+     * @param out          stream to print to
+     */
+    public synchronized void startReporting(long periodMillis, PrintStream out) {
+        reporterOut = out;
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "walk-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleWithFixedDelay(() -> out.println(progressLine()), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns current progress line.
+     *
+     * @return progress line
+     */
+    public String progressLine() {
+        long elapsed = Math.max(1, getElapsedMillis());
+        long files = getFiles();
+        long bytes = getBytes();
+        return String.format(Locale.ROOT,
+                "progress files=%d bytes=%d errors=%d cache_hits=%d cache_misses=%d elapsed_ms=%d files_per_s=%d mb_per_s=%.1f",
+                files, bytes, getErrors(), getCacheHits(), getCacheMisses(), elapsed,
+                files * 1000 / elapsed, bytes / 1000.0 / elapsed);
+    }
+
+    /**
+     * Stops progress reporting, printing the final line, and unregisters the MBean.
+     */
+    @Override
+    public synchronized void close() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+            reporterOut.println(progressLine());
+        }
+        if (registered != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                server.unregisterMBean(registered);
+            } catch (JMException ignored) {
+            }
+            registered = null;
+        }
+    }
+
+    @Override
+    public long getFiles() {
+        return files.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+
+    @Override
+    public long[] getLatencyBucketsMicros() {
+        return LatencyHistogram.bucketsMicros();
+    }
+
+    @Override
+    public Map<String, long[]> getLatencyHistograms() {
+        Map<String, long[]> result = new LinkedHashMap<>();
+        for (int i = 0; i < latencies.length; i++) {
+            result.put(SIZE_BUCKET_NAMES[i], latencies[i].counts());
+        }
+        return result;
+    }
+}
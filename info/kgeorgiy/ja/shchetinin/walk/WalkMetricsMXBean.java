@@ -0,0 +1,34 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link WalkMetrics}.
+ */
+public interface WalkMetricsMXBean {
+    long getFiles();
+
+    long getBytes();
+
+    long getErrors();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    long getElapsedMillis();
+
+    /**
+     * Returns exclusive upper bounds of latency buckets, the last bucket is unbounded.
+     *
+     * @return upper bounds in microseconds
+     */
+    long[] getLatencyBucketsMicros();
+
+    /**
+     * Returns latency histograms by file size bucket.
+     *
+     * @return map from size bucket name to counts per latency bucket
+     */
+    Map<String, long[]> getLatencyHistograms();
+}
@@ -0,0 +1,286 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line options of the walk tools.
+ * <p>
+ * Positional arguments are {@code input output [hashType]}, everything that starts with {@code --}
+ * is an option of the form {@code --name=value}.
+ */
+public class WalkOptions {
+    private static final int IN_FLIGHT_PER_THREAD = 16;
+    private static final long DEFAULT_CHECKPOINT_LINES = 10_000;
+
+    private String input;
+    private String output;
+    private String hashType = "";
+    private int threads = 1;
+    private int inFlight = -1;
+    private String read = "auto";
+    private long mmapThreshold = ThresholdReadStrategy.DEFAULT_THRESHOLD;
+    private ReadStrategy readStrategy;
+    private String cachePath;
+    private boolean cacheInvalidate;
+    private boolean cacheCompact;
+    private int flushLines;
+    private int maxDepth = Integer.MAX_VALUE;
+    private FileTreeWalker.LinkPolicy linkPolicy = FileTreeWalker.LinkPolicy.FOLLOW;
+    private final List<String> includes = new ArrayList<>();
+    private final List<String> excludes = new ArrayList<>();
+    private long progressMillis;
+    private boolean jmx;
+    private String checkpointPath;
+    private long checkpointLines = DEFAULT_CHECKPOINT_LINES;
+
+    /**
+     * Parses command line arguments.
+     *
+     * @param args arguments of the walk tool
+     * @return parsed options
+     * @throws IllegalArgumentException if arguments are missing or malformed
+     */
+    public static WalkOptions parse(String[] args) {
+        if (args == null) {
+            throw new IllegalArgumentException("Not enough arguments");
+        }
+        WalkOptions options = new WalkOptions();
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg == null) {
+                throw new IllegalArgumentException("Arguments are null.");
+            }
+            if (arg.startsWith("--")) {
+                options.setOption(arg);
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.size() < 2) {
+            throw new IllegalArgumentException("Not enough arguments");
+        }
+        options.input = positional.get(0);
+        options.output = positional.get(1);
+        if (positional.size() >= 3) {
+            options.hashType = positional.get(2);
+        }
+        if (options.checkpointPath != null && options.checkpointPath.isEmpty()) {
+            options.checkpointPath = options.output + ".checkpoint";
+        }
+        options.readStrategy = switch (options.read) {
+            case "channel" -> new ChannelReadStrategy();
+            case "mmap" -> new MappedReadStrategy();
+            case "auto" -> new ThresholdReadStrategy(new ChannelReadStrategy(), new MappedReadStrategy(), options.mmapThreshold);
+            default -> throw new IllegalArgumentException("Unknown read strategy: " + options.read);
+        };
+        return options;
+    }
+
+    private void setOption(String arg) {
+        int eq = arg.indexOf('=');
+        String name = eq < 0 ? arg.substring(2) : arg.substring(2, eq);
+        String value = eq < 0 ? "" : arg.substring(eq + 1);
+        switch (name) {
+            case "threads" -> threads = (int) parseNumber(name, value, 0, Integer.MAX_VALUE);
+            case "in-flight" -> inFlight = (int) parseNumber(name, value, 1, Integer.MAX_VALUE);
+            case "read" -> read = value;
+            case "mmap-threshold" -> mmapThreshold = parseNumber(name, value, 0, Long.MAX_VALUE);
+            case "cache" -> cachePath = value;
+            case "cache-invalidate" -> cacheInvalidate = true;
+            case "cache-compact" -> cacheCompact = true;
+            case "flush-lines" -> flushLines = (int) parseNumber(name, value, 0, Integer.MAX_VALUE);
+            case "max-depth" -> maxDepth = (int) parseNumber(name, value, 0, Integer.MAX_VALUE);
+            case "links" -> linkPolicy = parseLinkPolicy(value);
+            case "include" -> includes.add(value);
+            case "exclude" -> excludes.add(value);
+            case "progress" -> progressMillis = parseNumber(name, value, 0, Long.MAX_VALUE);
+            case "jmx" -> jmx = true;
+            case "checkpoint" -> checkpointPath = value;
+            case "checkpoint-lines" -> checkpointLines = parseNumber(name, value, 1, Long.MAX_VALUE);
+            default -> throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+    }
+
+    private static FileTreeWalker.LinkPolicy parseLinkPolicy(String value) {
+        for (FileTreeWalker.LinkPolicy policy : FileTreeWalker.LinkPolicy.values()) {
+            if (policy.name().equalsIgnoreCase(value)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown link policy: " + value);
+    }
+
+    private static long parseNumber(String name, String value, long min, long max) {
+        long result;
+        try {
+            result = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option --" + name + " expects a number, got: " + value);
+        }
+        if (result < min || result > max) {
+            throw new IllegalArgumentException("Option --" + name + " is out of range: " + value);
+        }
+        return result;
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public String getHashType() {
+        return hashType;
+    }
+
+    /**
+     * Returns number of hashing threads, {@code 0} in options means one per available processor.
+     *
+     * @return number of hashing threads
+     */
+    public int getThreads() {
+        return threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+
+    /**
+     * Returns maximal number of files that are hashed or waiting to be written at the same time.
+     *
+     * @return in-flight limit
+     */
+    public int getInFlight() {
+        return inFlight < 0 ? getThreads() * IN_FLIGHT_PER_THREAD : inFlight;
+    }
+
+    /**
+     * Returns strategy of reading files: {@code --read=channel}, {@code --read=mmap}
+     * or {@code --read=auto} (default) that maps files of at least {@code --mmap-threshold} bytes.
+     *
+     * @return read strategy
+     */
+    public ReadStrategy getReadStrategy() {
+        return readStrategy;
+    }
+
+    /**
+     * Returns path of the persistent hash cache, {@code --cache=path}.
+     *
+     * @return cache path or {@code null} if the cache is disabled
+     */
+    public String getCachePath() {
+        return cachePath;
+    }
+
+    /**
+     * Returns whether all cached hashes should be dropped before the walk, {@code --cache-invalidate}.
+     *
+     * @return {@code true} if the cache should be invalidated
+     */
+    public boolean isCacheInvalidate() {
+        return cacheInvalidate;
+    }
+
+    /**
+     * Returns whether hashes of files not seen during the walk should be dropped, {@code --cache-compact}.
+     *
+     * @return {@code true} if the cache should be compacted
+     */
+    public boolean isCacheCompact() {
+        return cacheCompact;
+    }
+
+    /**
+     * Returns number of lines after which output is flushed, {@code --flush-lines=N}.
+     *
+     * @return number of lines or {@code 0} (default) to flush only when the output buffer is full
+     */
+    public int getFlushLines() {
+        return flushLines;
+    }
+
+    /**
+     * Returns maximal depth of recursive walk, roots have depth {@code 0}, {@code --max-depth=N}.
+     *
+     * @return maximal depth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns policy of handling symbolic links, {@code --links=follow|files|skip}.
+     *
+     * @return link policy, {@link FileTreeWalker.LinkPolicy#FOLLOW} by default
+     */
+    public FileTreeWalker.LinkPolicy getLinkPolicy() {
+        return linkPolicy;
+    }
+
+    /**
+     * Returns globs of files to hash, {@code --include=glob}, may be repeated.
+     *
+     * @return include globs
+     */
+    public List<String> getIncludes() {
+        return List.copyOf(includes);
+    }
+
+    /**
+     * Returns globs of files and directories to skip, {@code --exclude=glob}, may be repeated.
+     *
+     * @return exclude globs
+     */
+    public List<String> getExcludes() {
+        return List.copyOf(excludes);
+    }
+
+    /**
+     * Returns period of progress lines on standard error, {@code --progress=MILLIS}.
+     *
+     * @return period in milliseconds or {@code 0} (default) if progress is not printed
+     */
+    public long getProgressMillis() {
+        return progressMillis;
+    }
+
+    /**
+     * Returns whether walk metrics are exported via JMX, {@code --jmx}.
+     *
+     * @return {@code true} if metrics are exported
+     */
+    public boolean isJmx() {
+        return jmx;
+    }
+
+    /**
+     * Returns path of the checkpoint journal, {@code --checkpoint=PATH} or {@code --checkpoint}
+     * for {@code output.checkpoint}.
+     *
+     * @return journal path or {@code null} if checkpoints are disabled
+     */
+    public String getCheckpointPath() {
+        return checkpointPath;
+    }
+
+    /**
+     * Returns number of input lines between checkpoints, {@code --checkpoint-lines=N}.
+     *
+     * @return number of lines
+     */
+    public long getCheckpointLines() {
+        return checkpointLines;
+    }
+
+    /**
+     * Returns description of everything that affects output of the walk.
+     *
+     * @param recursive whether the walk is recursive
+     * @return signature of the walk
+     */
+    public String signature(boolean recursive) {
+        return String.join("\n", input, output, hashType, Boolean.toString(recursive), Integer.toString(maxDepth),
+                linkPolicy.name(), String.join("\0", includes), String.join("\0", excludes));
+    }
+}
@@ -0,0 +1,121 @@
+package info.kgeorgiy.ja.shchetinin.walk;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming XXH64 with zero seed.
+ */
+public class XXHash64Calculator extends AbstractHashCalculator {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+    private static final VarHandle BUFFER_LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle ARRAY_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle ARRAY_INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final byte[] memory = new byte[STRIPE];
+    private int memorySize;
+    private long total;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+
+    @Override
+    protected void calcHashBuffer(ByteBuffer buffer) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        total += limit - position;
+        if (memorySize > 0) {
+            int length = Math.min(STRIPE - memorySize, limit - position);
+            buffer.get(position, memory, memorySize, length);
+            memorySize += length;
+            position += length;
+            if (memorySize < STRIPE) {
+                buffer.position(limit);
+                return;
+            }
+            stripe((long) ARRAY_LONG.get(memory, 0), (long) ARRAY_LONG.get(memory, 8),
+                    (long) ARRAY_LONG.get(memory, 16), (long) ARRAY_LONG.get(memory, 24));
+            memorySize = 0;
+        }
+        for (; limit - position >= STRIPE; position += STRIPE) {
+            stripe((long) BUFFER_LONG.get(buffer, position), (long) BUFFER_LONG.get(buffer, position + 8),
+                    (long) BUFFER_LONG.get(buffer, position + 16), (long) BUFFER_LONG.get(buffer, position + 24));
+        }
+        memorySize = limit - position;
+        buffer.get(position, memory, 0, memorySize);
+        buffer.position(limit);
+    }
+
+    private void stripe(long l1, long l2, long l3, long l4) {
+        v1 = round(v1, l1);
+        v2 = round(v2, l2);
+        v3 = round(v3, l3);
+        v4 = round(v4, l4);
+    }
+
+    private static long round(long acc, long input) {
+        return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        return (acc ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+
+    @Override
+    protected void preCalc() {
+        v1 = PRIME1 + PRIME2;
+        v2 = PRIME2;
+        v3 = 0;
+        v4 = -PRIME1;
+        total = 0;
+        memorySize = 0;
+    }
+
+    @Override
+    protected void postCalc() {
+        long h;
+        if (total >= STRIPE) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = PRIME5;
+        }
+        h += total;
+        int i = 0;
+        for (; i + 8 <= memorySize; i += 8) {
+            h ^= round(0, (long) ARRAY_LONG.get(memory, i));
+            h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+        }
+        if (i + 4 <= memorySize) {
+            h ^= ((int) ARRAY_INT.get(memory, i) & 0xFFFFFFFFL) * PRIME1;
+            h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+            i += 4;
+        }
+        for (; i < memorySize; i++) {
+            h ^= (memory[i] & 0xFF) * PRIME5;
+            h = Long.rotateLeft(h, 11) * PRIME1;
+        }
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+        putBigEndian(h, 0, 8);
+    }
+
+    @Override
+    protected int getDigestLength() {
+        return 8;
+    }
+}
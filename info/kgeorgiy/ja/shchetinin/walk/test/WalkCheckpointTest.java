@@ -0,0 +1,70 @@
+package info.kgeorgiy.ja.shchetinin.walk.test;
+
+import info.kgeorgiy.ja.shchetinin.walk.WalkCheckpoint;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WalkCheckpointTest {
+    private static final String SIGNATURE = "input|output|SHA-1|recursive";
+
+    private static Path journal() throws IOException {
+        Path directory = Files.createTempDirectory("walk-checkpoint");
+        return directory.resolve("walk.journal");
+    }
+
+    @Test
+    void resume() throws IOException {
+        Path journal = journal();
+        WalkCheckpoint checkpoint = new WalkCheckpoint(journal, SIGNATURE);
+        assertNull(checkpoint.load());
+
+        checkpoint.save(new WalkCheckpoint.Position(10, 400));
+        checkpoint.save(new WalkCheckpoint.Position(20, 800));
+        assertEquals(new WalkCheckpoint.Position(20, 800), new WalkCheckpoint(journal, SIGNATURE).load());
+        assertNull(new WalkCheckpoint(journal, SIGNATURE + "|other").load());
+
+        checkpoint.delete();
+        assertNull(checkpoint.load());
+    }
+
+    private static void checkCorrupted(Path journal, byte[] content) throws IOException {
+        Files.write(journal, content);
+        assertThrows(IOException.class, () -> new WalkCheckpoint(journal, SIGNATURE).load());
+    }
+
+    private static byte[] journal(int length, long lines, long offset) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x57434b31);
+        out.writeInt(length);
+        out.write(SIGNATURE.getBytes(StandardCharsets.UTF_8));
+        out.writeLong(lines);
+        out.writeLong(offset);
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void corrupted() throws IOException {
+        Path journal = journal();
+        new WalkCheckpoint(journal, SIGNATURE).save(new WalkCheckpoint.Position(20, 800));
+        byte[] valid = Files.readAllBytes(journal);
+        for (int length = 0; length < valid.length; length++) {
+            checkCorrupted(journal, Arrays.copyOf(valid, length));
+        }
+        checkCorrupted(journal, journal(-1, 20, 800));
+        checkCorrupted(journal, journal(Integer.MAX_VALUE, 20, 800));
+        checkCorrupted(journal, journal(SIGNATURE.length(), -20, 800));
+        checkCorrupted(journal, journal(SIGNATURE.length(), 20, -800));
+        Files.write(journal, journal(SIGNATURE.length(), 20, 800));
+        assertEquals(new WalkCheckpoint.Position(20, 800), new WalkCheckpoint(journal, SIGNATURE).load());
+    }
+}